@@ -0,0 +1,114 @@
+package com.socialmedia.benchmark;
+
+import com.socialmedia.dto.UserSnapshot;
+import com.socialmedia.model.ConversationSummary;
+import com.socialmedia.model.Message;
+import com.socialmedia.model.User;
+import com.socialmedia.service.ConversationSummaryService;
+import com.socialmedia.service.MessageService;
+import com.socialmedia.service.UserCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Inbox building over synthetic histories. groupAndSort is the in-memory grouping the inbox used
+// before conversation summaries existed (kept here as the baseline); summaryInbox is the current
+// MessageService.getAllConversations over the equivalent summary rows, with storage stubbed out.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class InboxBenchmark {
+
+    private static final String OWNER = "me@example.com";
+    private static final int PAGE_SIZE = 30;
+
+    @Param({"1000", "100000", "1000000"})
+    public int messageCount;
+
+    private List<Message> history;
+    private MessageService messageService;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        int partners = Math.max(10, Math.min(messageCount / 20, 5000));
+
+        history = new ArrayList<>(messageCount);
+        Map<String, ConversationSummary> summaries = new HashMap<>();
+        for (int i = 0; i < messageCount; i++) {
+            String partner = "user" + random.nextInt(partners) + "@example.com";
+            boolean received = random.nextBoolean();
+            Message message = received ? new Message(partner, OWNER, "Hello " + i) : new Message(OWNER, partner, "Hi " + i);
+            message.setId((long) i + 1);
+            message.setRead(!received || random.nextInt(10) > 0);
+            history.add(message);
+
+            ConversationSummary summary = summaries.computeIfAbsent(partner, p -> new ConversationSummary(OWNER, p));
+            summary.applyLastMessage(message);
+            if (!message.isRead()) {
+                summary.setUnreadCount(summary.getUnreadCount() + 1);
+            }
+        }
+
+        List<ConversationSummary> inbox = new ArrayList<>(summaries.values());
+        inbox.sort(Comparator.comparing(ConversationSummary::getLastMessageId).reversed());
+        List<ConversationSummary> firstPage = inbox.subList(0, Math.min(PAGE_SIZE, inbox.size()));
+
+        Map<String, UserSnapshot> snapshots = new HashMap<>();
+        for (ConversationSummary summary : firstPage) {
+            User user = new User(summary.getPartnerEmail(), summary.getPartnerEmail(), summary.getPartnerEmail(), null);
+            user.setId((long) snapshots.size() + 1);
+            snapshots.put(user.getEmail(), new UserSnapshot(user));
+        }
+
+        messageService = new MessageService(null);
+        ReflectionTestUtils.setField(messageService, "conversationSummaryService", new ConversationSummaryService() {
+            @Override
+            public List<ConversationSummary> getInbox(String ownerEmail, int page, int size) {
+                return firstPage;
+            }
+        });
+        ReflectionTestUtils.setField(messageService, "userCache", new UserCache() {
+            @Override
+            public Map<String, UserSnapshot> getByEmails(Collection<String> emails) {
+                return snapshots;
+            }
+        });
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> groupAndSort() {
+        Map<String, Message> lastByPartner = new HashMap<>();
+        Map<String, Integer> unreadByPartner = new HashMap<>();
+        for (Message message : history) {
+            boolean sent = message.getSenderEmail().equals(OWNER);
+            String partner = sent ? message.getRecipientEmail() : message.getSenderEmail();
+            lastByPartner.merge(partner, message, (a, b) -> a.getId() > b.getId() ? a : b);
+            if (!sent && !message.isRead()) {
+                unreadByPartner.merge(partner, 1, Integer::sum);
+            }
+        }
+
+        List<Map.Entry<String, Message>> entries = new ArrayList<>(lastByPartner.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().getId(), a.getValue().getId()));
+        List<Map<String, Object>> conversations = new ArrayList<>(PAGE_SIZE);
+        for (Map.Entry<String, Message> entry : entries.subList(0, Math.min(PAGE_SIZE, entries.size()))) {
+            Map<String, Object> conversation = new HashMap<>();
+            conversation.put("partner", entry.getKey());
+            conversation.put("lastMessage", entry.getValue());
+            conversation.put("unreadCount", unreadByPartner.getOrDefault(entry.getKey(), 0));
+            conversations.add(conversation);
+        }
+        return conversations;
+    }
+
+    @Benchmark
+    public Map<String, Object> summaryInbox() {
+        return messageService.getAllConversations(OWNER, 0, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,92 @@
+package com.socialmedia.benchmark;
+
+import com.socialmedia.security.JwtAuthenticationFilter;
+import com.socialmedia.security.JwtUtils;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Token generation, the cached and uncached validation paths, and the full authentication filter.
+// legacyValidateThenParse is the per-request work before verified tokens were cached, kept as the baseline.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+    private static final String SECRET = "benchmarkSecretKey123456789012345678901234567890Benchmark";
+
+    private JwtUtils jwtUtils;
+    private JwtAuthenticationFilter filter;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86400000);
+        ReflectionTestUtils.setField(jwtUtils, "cacheMaxEntries", 10000);
+        ReflectionTestUtils.setField(jwtUtils, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtils.init();
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+
+        token = jwtUtils.generateJwtToken("bench@example.com");
+        jwtUtils.getSubjectIfValid(token);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtUtils.generateJwtToken("bench@example.com");
+    }
+
+    // Repeat token, answered from the verified-token cache
+    @Benchmark
+    public String validateCached() {
+        return jwtUtils.getSubjectIfValid(token);
+    }
+
+    // Full signature check, as on a cache miss
+    @Benchmark
+    public Object parseClaims() {
+        return jwtUtils.parseClaims(token);
+    }
+
+    // Signing key rebuilt on every call and the token verified twice: once to validate, once for the subject
+    @Benchmark
+    public String legacyValidateThenParse() {
+        Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes())).build().parseClaimsJws(token);
+        return Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes())).build()
+                .parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String extractSubject() {
+        return jwtUtils.getUserIdFromJwtToken(token);
+    }
+
+    @Benchmark
+    public int authenticationFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/me");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, NO_OP_CHAIN);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,93 @@
+package com.socialmedia.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.socialmedia.dto.MessageView;
+import com.socialmedia.dto.UserSummary;
+import com.socialmedia.model.Message;
+import com.socialmedia.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Response serialization of entity lists against the slim list DTOs, with and without avatars/attachments
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"false", "true"})
+    public boolean withMedia;
+
+    @Param({"50", "200"})
+    public int size;
+
+    private ObjectMapper mapper;
+    private List<User> users;
+    private List<UserSummary> userSummaries;
+    private List<Message> messages;
+    private List<MessageView> messageViews;
+
+    @Setup
+    public void setup() {
+        mapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        users = new ArrayList<>(size);
+        userSummaries = new ArrayList<>(size);
+        messages = new ArrayList<>(size);
+        messageViews = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            User user = new User("user" + i, "User " + i, "user" + i + "@example.com", null);
+            user.setId((long) i + 1);
+            user.setBio("Bio of user " + i + ", long enough to look like a real profile description.");
+            user.setLocation("Somewhere");
+            user.setProfession("Engineer");
+            if (withMedia) {
+                user.setAvatar("http://localhost:8081/api/avatars/" + (i + 1) + "/v1a2b3c4d/96");
+            }
+            users.add(user);
+            userSummaries.add(new UserSummary(user.getId(), user.getUsername(), user.getDisplayName(), user.getEmail(), user.getAvatar()));
+
+            Message message = new Message("user" + i + "@example.com", "me@example.com", "Message number " + i + " with some ordinary text in it");
+            message.setId((long) i + 1);
+            message.setParticipants((long) i + 1, 0L);
+            if (withMedia) {
+                message.setMediaId((long) i + 1);
+                message.setMediaType("image/jpeg");
+                message.setMediaFilename("photo-" + i + ".jpg");
+            }
+            messages.add(message);
+            messageViews.add(MessageView.of(message));
+        }
+    }
+
+    @Benchmark
+    public byte[] userEntities() throws Exception {
+        return mapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public byte[] userSummaries() throws Exception {
+        return mapper.writeValueAsBytes(userSummaries);
+    }
+
+    @Benchmark
+    public byte[] messageEntities() throws Exception {
+        return mapper.writeValueAsBytes(messages);
+    }
+
+    @Benchmark
+    public byte[] messageViews() throws Exception {
+        return mapper.writeValueAsBytes(messageViews);
+    }
+}
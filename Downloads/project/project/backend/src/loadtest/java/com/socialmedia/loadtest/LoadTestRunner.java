@@ -0,0 +1,345 @@
+package com.socialmedia.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.socialmedia.SocialMediaApplication;
+import com.socialmedia.model.FollowEdge;
+import com.socialmedia.model.Message;
+import com.socialmedia.model.User;
+import com.socialmedia.repository.FollowEdgeRepository;
+import com.socialmedia.repository.MessageRepository;
+import com.socialmedia.repository.UserRepository;
+import com.socialmedia.security.JwtUtils;
+import com.socialmedia.service.ConversationSummaryService;
+import com.socialmedia.service.MessageSearchIndex;
+import com.socialmedia.service.UserSearchIndex;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Boots the backend on an in-memory H2 database (profile "loadtest"), seeds users, follow edges and
+// message histories, then drives a weighted mix of real HTTP calls. Each entry of loadtest.rates is one
+// step with a fixed target rate in requests per second, so a list like 250,500,1000,2000 shows where
+// throughput flattens and latency climbs. The rate is spread over loadtest.clients threads, each sending
+// on its own fixed schedule. Latency is measured from when a request was due, not from when it was sent,
+// so a stalled server is charged for the requests queued behind it (no coordinated omission).
+// Clients are platform threads: the build targets Java 17, which has no virtual threads.
+//
+// Run with: mvn -P loadtest verify -Dloadtest.users=2000 -Dloadtest.rates=500,1000,2000 -Dloadtest.clients=256
+public class LoadTestRunner {
+
+    private static final String PASSWORD = "loadtest-password";
+
+    private final int users = Integer.getInteger("loadtest.users", 1000);
+    private final int followsPerUser = Integer.getInteger("loadtest.follows", 20);
+    private final int messagesPerUser = Integer.getInteger("loadtest.messages", 50);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration", 30);
+    private final List<Integer> rateSteps = parseSteps(System.getProperty("loadtest.rates", "250,500,1000,2000"));
+    private final int clients = Integer.getInteger("loadtest.clients", 128);
+    private final Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix",
+            "inbox:30,conversation:25,send:20,search:10,msearch:5,follow:8,login:5,signup:2"));
+    private final String reportPath = System.getProperty("loadtest.report", "target/loadtest-report.json");
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper json = new ObjectMapper();
+    private final AtomicLong signups = new AtomicLong();
+
+    private String baseUrl;
+    private List<String> emails;
+    private List<String> tokens;
+
+    public static void main(String[] args) throws Exception {
+        SpringApplication application = new SpringApplication(SocialMediaApplication.class);
+        application.setAdditionalProfiles("loadtest");
+        ConfigurableApplicationContext context = application.run("--server.port=0");
+        int exitCode = 0;
+        try {
+            new LoadTestRunner().run(context);
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private void run(ConfigurableApplicationContext context) throws Exception {
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        long seedStart = System.nanoTime();
+        seed(context);
+        System.out.printf("Seeded %d users, %d follow edges and %d messages in %.1fs%n", users, users * followsPerUser,
+                users * messagesPerUser, (System.nanoTime() - seedStart) / 1e9);
+
+        List<Map<String, Object>> steps = new ArrayList<>();
+        for (int rate : rateSteps) {
+            steps.add(runStep(rate));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", users);
+        report.put("followsPerUser", followsPerUser);
+        report.put("messagesPerUser", messagesPerUser);
+        report.put("clients", clients);
+        report.put("mix", mix);
+        report.put("steps", steps);
+        File file = new File(reportPath);
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        json.enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+        System.out.println("Report written to " + file.getAbsolutePath());
+    }
+
+    // Seeds through the repositories, then rebuilds the derived state that normally builds at startup
+    private void seed(ConfigurableApplicationContext context) throws IOException {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        FollowEdgeRepository followEdgeRepository = context.getBean(FollowEdgeRepository.class);
+        MessageRepository messageRepository = context.getBean(MessageRepository.class);
+        JwtUtils jwtUtils = context.getBean(JwtUtils.class);
+        // One hash for everyone; hashing per user would dominate seeding time
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        Random random = new Random(42);
+
+        List<User> seeded = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = new User("lt_user" + i, "Load Test User " + i, "lt_user" + i + "@example.com", passwordHash);
+            user.setBio("Seeded by LoadTestRunner");
+            seeded.add(user);
+        }
+        seeded = userRepository.saveAll(seeded);
+
+        int[] followers = new int[users];
+        List<FollowEdge> edges = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            Set<Integer> followees = new HashSet<>();
+            while (followees.size() < Math.min(followsPerUser, users - 1)) {
+                int followee = random.nextInt(users);
+                if (followee != i && followees.add(followee)) {
+                    edges.add(new FollowEdge(seeded.get(i).getId(), seeded.get(followee).getId()));
+                    followers[followee]++;
+                }
+            }
+            seeded.get(i).setFollowingCount(followees.size());
+        }
+        for (int i = 0; i < users; i++) {
+            seeded.get(i).setFollowers(followers[i]);
+        }
+        userRepository.saveAll(seeded);
+        for (int from = 0; from < edges.size(); from += 5000) {
+            followEdgeRepository.saveAll(edges.subList(from, Math.min(from + 5000, edges.size())));
+        }
+
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        int total = users * messagesPerUser;
+        List<Message> batch = new ArrayList<>(5000);
+        for (int n = 0; n < total; n++) {
+            User sender = seeded.get(random.nextInt(users));
+            User recipient = seeded.get(random.nextInt(users));
+            Message message = new Message(sender.getEmail(), recipient.getEmail(), "Seeded message " + n);
+            message.setParticipants(sender.getId(), recipient.getId());
+            message.setTimestamp(start.plusSeconds(n));
+            message.setRead(random.nextInt(10) > 0);
+            batch.add(message);
+            if (batch.size() == 5000 || n == total - 1) {
+                messageRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+
+        context.getBean(ConversationSummaryService.class).rebuildIfEmpty();
+        context.getBean(UserSearchIndex.class).rebuild();
+        context.getBean(MessageSearchIndex.class).rebuild();
+
+        emails = new ArrayList<>(users);
+        tokens = new ArrayList<>(users);
+        for (User user : seeded) {
+            emails.add(user.getEmail());
+            tokens.add(jwtUtils.generateJwtToken(user.getEmail()));
+        }
+    }
+
+    private Map<String, Object> runStep(int rate) throws InterruptedException {
+        Map<String, EndpointStats> stats = new TreeMap<>();
+        mix.keySet().forEach(name -> stats.put(name, new EndpointStats()));
+        List<String> operations = new ArrayList<>();
+        mix.forEach((name, weight) -> operations.addAll(Collections.nCopies(weight, name)));
+
+        // Every client sends one request per interval; starts are staggered so the step opens at an even rate
+        long intervalNanos = TimeUnit.SECONDS.toNanos(clients) / rate;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long begin = System.nanoTime();
+        long end = begin + TimeUnit.SECONDS.toNanos(durationSeconds);
+        for (int c = 0; c < clients; c++) {
+            long first = begin + intervalNanos * c / clients;
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                // A client that fell behind sends its backlog at once rather than skipping it
+                for (long due = first; due < end; due += intervalNanos) {
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    String operation = operations.get(random.nextInt(operations.size()));
+                    stats.get(operation).record(due, () -> call(operation, random));
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(durationSeconds + 60L, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - begin) / 1e9;
+
+        System.out.printf("%n%d req/s target, %d clients, %ds%n", rate, clients, durationSeconds);
+        System.out.printf("%-14s %10s %10s %8s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long totalRequests = 0;
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            Map<String, Object> summary = entry.getValue().summarize(elapsedSeconds);
+            endpoints.put(entry.getKey(), summary);
+            totalRequests += (long) summary.get("requests");
+            System.out.printf("%-14s %10d %10.1f %7.2f%% %10.2f %10.2f %10.2f %10.2f%n", entry.getKey(),
+                    summary.get("requests"), summary.get("throughput"), 100 * (double) summary.get("errorRate"),
+                    summary.get("p50Ms"), summary.get("p99Ms"), summary.get("p999Ms"), summary.get("maxMs"));
+        }
+        System.out.printf("%-14s %10d %10.1f%n", "total", totalRequests, totalRequests / elapsedSeconds);
+
+        Map<String, Object> step = new LinkedHashMap<>();
+        step.put("targetRate", rate);
+        step.put("clients", clients);
+        step.put("durationSeconds", durationSeconds);
+        // Longer than durationSeconds when the server could not keep up and backlogs had to drain
+        step.put("elapsedSeconds", elapsedSeconds);
+        step.put("throughput", totalRequests / elapsedSeconds);
+        step.put("endpoints", endpoints);
+        return step;
+    }
+
+    private int call(String operation, ThreadLocalRandom random) throws Exception {
+        int self = random.nextInt(users);
+        String token = tokens.get(self);
+        String other = emails.get(random.nextInt(users));
+        switch (operation) {
+            case "inbox":
+                return send(get("/api/messages/conversations", token));
+            case "conversation":
+                return send(get("/api/messages/conversation/" + encode(other), token));
+            case "send":
+                return send(post("/api/messages/send", token,
+                        Map.of("recipientEmail", other, "content", "Load test message " + random.nextInt())));
+            case "search":
+                return send(get("/api/users/search?query=" + encode("user" + random.nextInt(users)), token));
+            case "msearch":
+                return send(get("/api/messages/search?q=" + encode("seeded message " + random.nextInt(users * messagesPerUser)), token));
+            case "follow":
+                String path = "/api/users/follow/" + encode(other);
+                HttpRequest.Builder request = authorized(path, token);
+                return send(random.nextBoolean() ? request.POST(HttpRequest.BodyPublishers.noBody()) : request.DELETE());
+            case "login":
+                return send(post("/api/auth/login", null, Map.of("email", emails.get(self), "password", PASSWORD)));
+            case "signup":
+                long n = signups.incrementAndGet();
+                return send(post("/api/auth/signup", null, Map.of("username", "lt_signup" + n,
+                        "displayName", "Signup " + n, "email", "lt_signup" + n + "@example.com", "password", PASSWORD)));
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private HttpRequest.Builder get(String path, String token) {
+        return authorized(path, token).GET();
+    }
+
+    private HttpRequest.Builder post(String path, String token, Map<String, Object> body) throws Exception {
+        return authorized(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json.writeValueAsBytes(body)));
+    }
+
+    private HttpRequest.Builder authorized(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private int send(HttpRequest.Builder request) throws Exception {
+        return http.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static List<Integer> parseSteps(String value) {
+        List<Integer> steps = new ArrayList<>();
+        for (String step : value.split(",")) {
+            steps.add(Integer.parseInt(step.trim()));
+        }
+        return steps;
+    }
+
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            mix.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        return mix;
+    }
+
+    private static final class EndpointStats {
+        // Microseconds, up to one minute at three significant digits
+        private final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+        private final LongAdder errors = new LongAdder();
+
+        // Latency runs from the time the request was due, which includes any wait behind earlier slow requests
+        void record(long dueNanos, Callable<Integer> call) {
+            int status;
+            try {
+                status = call.call();
+            } catch (Exception e) {
+                status = -1;
+            }
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - dueNanos);
+            latency.recordValue(Math.min(micros, latency.getHighestTrackableValue()));
+            if (status < 200 || status >= 400) {
+                errors.increment();
+            }
+        }
+
+        Map<String, Object> summarize(double elapsedSeconds) {
+            long requests = latency.getTotalCount();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", requests);
+            summary.put("errors", errors.sum());
+            summary.put("errorRate", requests == 0 ? 0.0 : errors.sum() / (double) requests);
+            summary.put("throughput", requests / elapsedSeconds);
+            summary.put("p50Ms", latency.getValueAtPercentile(50) / 1000.0);
+            summary.put("p99Ms", latency.getValueAtPercentile(99) / 1000.0);
+            summary.put("p999Ms", latency.getValueAtPercentile(99.9) / 1000.0);
+            summary.put("maxMs", latency.getMaxValue() / 1000.0);
+            return summary;
+        }
+    }
+}
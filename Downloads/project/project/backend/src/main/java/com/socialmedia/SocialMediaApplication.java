@@ -2,13 +2,14 @@ package com.socialmedia;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SocialMediaApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(SocialMediaApplication.class, args);
-        System.out.println("Project is Running");
     }
 
 }
\ No newline at end of file
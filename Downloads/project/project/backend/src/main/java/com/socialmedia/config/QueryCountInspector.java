@@ -0,0 +1,25 @@
+package com.socialmedia.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Counts the SQL statements Hibernate prepares on the current thread, so MetricsConfig can record
+// queries per request. Hibernate instantiates this class itself (hibernate.session_factory.statement_inspector),
+// hence the static counter. JdbcTemplate statements bypass Hibernate and are not counted.
+public class QueryCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public static int get() {
+        return COUNT.get()[0];
+    }
+}
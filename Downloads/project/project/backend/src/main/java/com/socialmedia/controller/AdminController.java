@@ -0,0 +1,45 @@
+package com.socialmedia.controller;
+
+import com.socialmedia.service.ServiceBusyException;
+import com.socialmedia.service.UserImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Every endpoint here requires ROLE_ADMIN, enforced in SecurityConfig
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AdminController {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    // NDJSON body, one {"username","displayName","email","password"} object per line.
+    // Returns immediately with a job id; poll the job for progress and per-line errors.
+    @PostMapping("/users/import")
+    public ResponseEntity<?> importUsers(HttpServletRequest request) {
+        try {
+            UserImportService.ImportJob job = userImportService.startImport(request.getInputStream());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toMap());
+        } catch (ServiceBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body("Error: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/users/import/{jobId}")
+    public ResponseEntity<?> getImportJob(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(userImportService.getJob(jobId).toMap());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+}
@@ -5,95 +5,126 @@ import com.socialmedia.dto.LoginRequest;
 import com.socialmedia.dto.SignupRequest;
 import com.socialmedia.model.User;
 import com.socialmedia.service.AuthService;
+import com.socialmedia.service.ServiceBusyException;
 import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = {"http://localhost:3000", "https://localhost:3000"}, maxAge = 3600)
 public class AuthController {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired
     private AuthService authService;
 
+    // Answered asynchronously so the request thread is not held while the password hash runs
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
         try {
-            AuthResponse authResponse = authService.authenticateUser(loginRequest);
-            return ResponseEntity.ok(authResponse);
+            return authService.authenticateUser(loginRequest)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(this::failure);
         } catch (Exception e) {
-            Map<String, String> error = new HashMap<>();
-            error.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(error);
+            return CompletableFuture.completedFuture(failure(e));
         }
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@RequestBody SignupRequest signUpRequest) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody SignupRequest signUpRequest) {
         try {
-            System.out.println("Signup request received: " + signUpRequest.getEmail());
+            logger.debug("Signup request received: {}", signUpRequest.getEmail());
             
             // Manual validation
             if (signUpRequest.getUsername() == null || signUpRequest.getUsername().trim().isEmpty()) {
                 Map<String, String> error = new HashMap<>();
                 error.put("message", "Username is required");
-                return ResponseEntity.badRequest().body(error);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
             }
             
             if (signUpRequest.getDisplayName() == null || signUpRequest.getDisplayName().trim().isEmpty()) {
                 Map<String, String> error = new HashMap<>();
                 error.put("message", "Display name is required");
-                return ResponseEntity.badRequest().body(error);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
             }
             
             if (signUpRequest.getEmail() == null || signUpRequest.getEmail().trim().isEmpty()) {
                 Map<String, String> error = new HashMap<>();
                 error.put("message", "Email is required");
-                return ResponseEntity.badRequest().body(error);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
             }
             
             if (signUpRequest.getPassword() == null || signUpRequest.getPassword().trim().isEmpty()) {
                 Map<String, String> error = new HashMap<>();
                 error.put("message", "Password is required");
-                return ResponseEntity.badRequest().body(error);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
             }
             
             if (signUpRequest.getPassword().length() < 6) {
                 Map<String, String> error = new HashMap<>();
                 error.put("message", "Password must be at least 6 characters");
-                return ResponseEntity.badRequest().body(error);
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
             }
             
-            AuthResponse authResponse = authService.registerUser(signUpRequest);
-            System.out.println("User registered successfully: " + authResponse.getUser().getEmail());
-            return ResponseEntity.ok(authResponse);
+            return authService.registerUser(signUpRequest)
+                    .<ResponseEntity<?>>thenApply(authResponse -> {
+                        logger.info("User registered: {}", authResponse.getUser().getEmail());
+                        return ResponseEntity.ok(authResponse);
+                    })
+                    .exceptionally(e -> {
+                        logger.warn("Signup failed: {}", unwrap(e).getMessage());
+                        return failure(e);
+                    });
         } catch (Exception e) {
-            System.err.println("Signup error: " + e.getMessage());
-            e.printStackTrace();
-            Map<String, String> error = new HashMap<>();
-            error.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(error);
+            logger.warn("Signup failed: {}", e.getMessage());
+            return CompletableFuture.completedFuture(failure(e));
         }
     }
 
     @GetMapping("/me")
     public ResponseEntity<?> getCurrentUser(@RequestHeader("Authorization") String token) {
         try {
-            System.out.println("Getting current user with token: " + (token != null ? "present" : "null"));
             User currentUser = authService.getCurrentUser(token);
-            System.out.println("Current user found: " + currentUser.getEmail());
             return ResponseEntity.ok(currentUser);
         } catch (Exception e) {
-            System.err.println("Get current user error: " + e.getMessage());
-            e.printStackTrace();
+            logger.debug("Get current user failed: {}", e.getMessage());
             Map<String, String> error = new HashMap<>();
             error.put("message", e.getMessage());
             return ResponseEntity.badRequest().body(error);
         }
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<?> failure(Throwable e) {
+        Throwable cause = unwrap(e);
+        if (cause instanceof ServiceBusyException busy) {
+            return busy(busy);
+        }
+        Map<String, String> error = new HashMap<>();
+        error.put("message", cause.getMessage());
+        return ResponseEntity.badRequest().body(error);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private ResponseEntity<?> busy(ServiceBusyException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(error);
+    }
+}
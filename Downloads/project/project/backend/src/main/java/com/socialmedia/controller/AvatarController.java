@@ -0,0 +1,46 @@
+package com.socialmedia.controller;
+
+import com.socialmedia.service.AvatarService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Public, versioned avatar images. A URL never changes content, so responses are immutable.
+@RestController
+@RequestMapping("/api/avatars")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AvatarController {
+
+    @Autowired
+    private AvatarService avatarService;
+
+    @GetMapping("/{userId}/{version}/{size}")
+    public ResponseEntity<?> getAvatar(@PathVariable Long userId,
+                                     @PathVariable String version,
+                                     @PathVariable int size) {
+        Optional<Path> image = avatarService.resolve(userId, version, size);
+        if (image.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Path path = image.get();
+        if (!avatarService.isThumbnail(path)) {
+            // Thumbnail is still rendering; serve the original but don't let it be cached under this URL
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .body(new FileSystemResource(path));
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .eTag(version + "-" + size)
+                .contentType(MediaType.IMAGE_JPEG)
+                .body(new FileSystemResource(path));
+    }
+}
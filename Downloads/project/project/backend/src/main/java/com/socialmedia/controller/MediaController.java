@@ -0,0 +1,81 @@
+package com.socialmedia.controller;
+
+import com.socialmedia.dto.UploadInitRequest;
+import com.socialmedia.model.MediaUpload;
+import com.socialmedia.service.MediaUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/media/uploads")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class MediaController {
+
+    @Autowired
+    private MediaUploadService mediaUploadService;
+
+    @PostMapping
+    public ResponseEntity<?> initUpload(@RequestBody UploadInitRequest request,
+                                      Authentication authentication) {
+        try {
+            MediaUpload upload = mediaUploadService.initUpload(authentication.getName(), request);
+            return ResponseEntity.ok(toResponse(upload));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Raw chunk bytes in the request body, appended at ?offset=; the body is never buffered in memory
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                       @RequestParam long offset,
+                                       HttpServletRequest request,
+                                       Authentication authentication) {
+        try {
+            MediaUpload upload = mediaUploadService.writeChunk(authentication.getName(), uploadId, offset, request.getInputStream());
+            return ResponseEntity.ok(toResponse(upload));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Lets a client that lost its connection find out where to resume
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> getUpload(@PathVariable String uploadId,
+                                     Authentication authentication) {
+        try {
+            MediaUpload upload = mediaUploadService.getUpload(authentication.getName(), uploadId);
+            return ResponseEntity.ok(toResponse(upload));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable String uploadId,
+                                          Authentication authentication) {
+        try {
+            MediaUpload upload = mediaUploadService.completeUpload(authentication.getName(), uploadId);
+            return ResponseEntity.ok(toResponse(upload));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> toResponse(MediaUpload upload) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("uploadId", upload.getId());
+        response.put("status", upload.getStatus());
+        response.put("totalSize", upload.getTotalSize());
+        response.put("receivedBytes", upload.getReceivedBytes());
+        response.put("chunkSize", mediaUploadService.getChunkSize());
+        response.put("mediaId", upload.getMediaId());
+        return response;
+    }
+}
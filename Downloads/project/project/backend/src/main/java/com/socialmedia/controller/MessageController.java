@@ -1,53 +1,120 @@
 package com.socialmedia.controller;
 
 import com.socialmedia.dto.MessageRequest;
+import com.socialmedia.dto.MessageView;
+import com.socialmedia.model.MediaObject;
 import com.socialmedia.model.Message;
+import com.socialmedia.security.StreamTicketService;
+import com.socialmedia.service.MediaStorageService;
+import com.socialmedia.service.MessageExportService;
 import com.socialmedia.service.MessageService;
+import com.socialmedia.service.RealtimeHub;
+import com.socialmedia.service.ServiceBusyException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.*;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/messages")
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class MessageController {
 
+    // Clients may keep responses but must revalidate with If-None-Match; a match returns 304
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private MediaStorageService mediaStorageService;
+
+    @Autowired
+    private RealtimeHub realtimeHub;
+
+    @Autowired
+    private MessageExportService messageExportService;
+
+    @Autowired
+    private StreamTicketService streamTicketService;
+
+    // Single-use ticket for opening the stream, passed as ?ticket= since EventSource cannot send headers
+    @PostMapping("/stream/ticket")
+    public ResponseEntity<?> streamTicket(Authentication authentication) {
+        return ResponseEntity.ok(Map.of("ticket", streamTicketService.issue(authentication.getName())));
+    }
+
+    // Server-sent events: "message" for new messages, "read" for read receipts, "deleted" for removed messages
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Authentication authentication) {
+        return realtimeHub.connect(authentication.getName());
+    }
+
+    // With write-behind enabled the response is held until the message's batch has committed
     @PostMapping("/send")
-    public ResponseEntity<?> sendMessage(@Valid @RequestBody MessageRequest messageRequest, 
+    public CompletableFuture<ResponseEntity<?>> sendMessage(@Valid @RequestBody MessageRequest messageRequest, 
                                        Authentication authentication) {
         try {
             String senderEmail = authentication.getName();
-            Message message = messageService.sendMessage(senderEmail, messageRequest);
-            return ResponseEntity.ok(message);
+            if (!messageService.isWriteBehindEnabled()) {
+                Message message = messageService.sendMessage(senderEmail, messageRequest);
+                return CompletableFuture.completedFuture(ResponseEntity.ok(message));
+            }
+            return messageService.submitMessage(senderEmail, messageRequest)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body("Error: Failed to store message"));
+        } catch (ServiceBusyException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body("Error: " + e.getMessage()));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Error: " + e.getMessage()));
         }
     }
 
     @GetMapping("/conversation/{userEmail}")
-    public ResponseEntity<?> getConversation(@PathVariable String userEmail, 
+    public ResponseEntity<?> getConversation(@PathVariable String userEmail,
+                                           @RequestParam(required = false) Long before,
+                                           @RequestParam(required = false) Long after,
+                                           @RequestParam(required = false) Integer size,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
                                            Authentication authentication) {
         try {
             String currentUserEmail = authentication.getName();
-            List<Message> messages = messageService.getConversation(currentUserEmail, userEmail);
-            return ResponseEntity.ok(messages);
+            String etag = messageService.getConversationETag(currentUserEmail, userEmail);
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+            }
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE)
+                    .body(messageService.getConversation(currentUserEmail, userEmail, before, after, size));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
 
     @GetMapping("/conversations")
-    public ResponseEntity<?> getAllConversations(Authentication authentication) {
+    public ResponseEntity<?> getAllConversations(@RequestParam(required = false) Integer page,
+                                               @RequestParam(required = false) Integer size,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                               Authentication authentication) {
         try {
             String userEmail = authentication.getName();
-            return ResponseEntity.ok(messageService.getAllConversations(userEmail));
+            String etag = messageService.getInboxETag(userEmail, page, size);
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+            }
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE)
+                    .body(messageService.getAllConversations(userEmail, page, size));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
@@ -65,14 +132,141 @@ public class MessageController {
         }
     }
 
+    @DeleteMapping("/{messageId}")
+    public ResponseEntity<?> deleteMessage(@PathVariable String messageId,
+                                         Authentication authentication) {
+        try {
+            String userEmail = authentication.getName();
+            messageService.deleteMessage(messageId, userEmail);
+            return ResponseEntity.ok().body("{\"success\": true}");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchMessages(@RequestParam String q,
+                                          @RequestParam(required = false) Long before,
+                                          @RequestParam(required = false) Integer size,
+                                          Authentication authentication) {
+        try {
+            String userEmail = authentication.getName();
+            return ResponseEntity.ok(messageService.searchMessages(userEmail, q, before, size));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/unread")
     public ResponseEntity<?> getUnreadMessages(Authentication authentication) {
         try {
             String userEmail = authentication.getName();
-            List<Message> unreadMessages = messageService.getUnreadMessages(userEmail);
+            List<MessageView> unreadMessages = messageService.getUnreadMessages(userEmail);
             return ResponseEntity.ok(unreadMessages);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Full history as NDJSON, one message per line; ?email= is only honoured for ROLE_ADMIN
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    // Declared as StreamingResponseBody so Spring streams it; the error body is streamed the same way
+    public ResponseEntity<StreamingResponseBody> exportMessages(@RequestParam(required = false) String email,
+                                                                Authentication authentication) {
+        String subject;
+        try {
+            subject = messageExportService.resolveSubject(authentication, email);
+        } catch (Exception e) {
+            byte[] error = ("Error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(error));
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+        headers.setContentDisposition(ContentDisposition.attachment().filename("messages.ndjson").build());
+        headers.setCacheControl(CacheControl.noStore());
+        StreamingResponseBody body = out -> messageExportService.export(subject, out);
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    // Served from the API origin, so only passive media is shown inline and the browser may not sniff a type
+    @GetMapping("/{messageId}/media")
+    public ResponseEntity<StreamingResponseBody> downloadMedia(@PathVariable String messageId,
+                                         @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         Authentication authentication) {
+        Message message;
+        MediaObject media;
+        try {
+            message = messageService.getMessageWithMedia(messageId, authentication.getName());
+            media = mediaStorageService.findById(message.getMediaId())
+                    .orElseThrow(() -> new Exception("Media not found"));
+        } catch (Exception e) {
+            byte[] error = ("Error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(error));
+        }
+
+        // Stored objects are immutable, so the content hash is a strong validator
+        String etag = "\"" + media.getSha256() + "\"";
+        long length = media.getSizeBytes();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        MediaType contentType = parseStoredType(media.getContentType());
+        headers.setContentType(contentType);
+        headers.set("X-Content-Type-Options", "nosniff");
+        ContentDisposition.Builder disposition = isPassive(contentType) ? ContentDisposition.inline() : ContentDisposition.attachment();
+        if (message.getMediaFilename() != null) {
+            disposition.filename(message.getMediaFilename(), StandardCharsets.UTF_8);
+        }
+        headers.setContentDisposition(disposition.build());
+
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        if (rangeHeader != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Multi-range requests are answered with the full body, which RFC 9110 permits
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    status = HttpStatus.PARTIAL_CONTENT;
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+            }
+        }
+
+        long position = start;
+        long count = end - start + 1;
+        headers.setContentLength(count);
+        StreamingResponseBody body = out -> mediaStorageService.transfer(media, position, count, out);
+        return ResponseEntity.status(status).headers(headers).body(body);
+    }
+
+    // Rows stored before uploads were validated may hold anything; unparseable types are served as raw bytes
+    private static MediaType parseStoredType(String contentType) {
+        if (contentType == null) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    private static boolean isPassive(MediaType contentType) {
+        String type = contentType.getType();
+        return (type.equals("image") || type.equals("audio") || type.equals("video"))
+                && !contentType.isWildcardSubtype() && !contentType.getSubtype().contains("svg");
+    }
+}
@@ -0,0 +1,43 @@
+package com.socialmedia.controller;
+
+import com.socialmedia.dto.HeartbeatRequest;
+import com.socialmedia.service.PresenceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/presence")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class PresenceController {
+
+    @Autowired
+    private PresenceService presenceService;
+
+    // Sent periodically and on keystrokes while typing; redundant heartbeats are coalesced server-side
+    @PostMapping("/heartbeat")
+    public ResponseEntity<?> heartbeat(@RequestBody(required = false) HeartbeatRequest request,
+                                     Authentication authentication) {
+        try {
+            HeartbeatRequest heartbeat = request != null ? request : new HeartbeatRequest();
+            presenceService.heartbeat(authentication.getName(), heartbeat.getState(), heartbeat.getTypingTo());
+            return ResponseEntity.ok().body("{\"success\": true}");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Body is a JSON array of user ids, e.g. the whole contact list; answered from memory in one call
+    @PostMapping
+    public ResponseEntity<?> getPresence(@RequestBody List<Long> userIds,
+                                       Authentication authentication) {
+        try {
+            return ResponseEntity.ok(presenceService.getPresence(authentication.getName(), userIds));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+}
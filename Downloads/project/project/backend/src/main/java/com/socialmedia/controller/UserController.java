@@ -1,13 +1,19 @@
 package com.socialmedia.controller;
 
+import com.socialmedia.dto.UserSummary;
 import com.socialmedia.model.User;
 import com.socialmedia.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -19,21 +25,22 @@ public class UserController {
     private UserService userService;
 
     @GetMapping
-    public ResponseEntity<?> getAllUsers() {
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) Long after,
+                                       @RequestParam(required = false) Integer size) {
         try {
-            List<User> users = userService.getAllUsers();
-            return ResponseEntity.ok(users);
+            return ResponseEntity.ok(userService.getAllUsers(after, size));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
 
     @GetMapping("/{userId}")
-    public ResponseEntity<?> getUserById(@PathVariable String userId) {
+    public ResponseEntity<?> getUserById(@PathVariable String userId,
+                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             Optional<User> user = userService.getUserById(userId);
             if (user.isPresent()) {
-                return ResponseEntity.ok(user.get());
+                return profile(user.get(), ifNoneMatch);
             } else {
                 return ResponseEntity.notFound().build();
             }
@@ -42,12 +49,46 @@ public class UserController {
         }
     }
 
+    @GetMapping("/{userId}/followers")
+    public ResponseEntity<?> getFollowers(@PathVariable Long userId,
+                                        @RequestParam(required = false) Long after,
+                                        @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(userService.getFollowers(userId, after, size));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/{userId}/following")
+    public ResponseEntity<?> getFollowing(@PathVariable Long userId,
+                                        @RequestParam(required = false) Long after,
+                                        @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(userService.getFollowing(userId, after, size));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/{userId}/is-following")
+    public ResponseEntity<?> isFollowing(@PathVariable Long userId,
+                                       Authentication authentication) {
+        try {
+            boolean following = userService.isFollowing(authentication.getName(), userId);
+            return ResponseEntity.ok(Map.of("following", following));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/email/{email}")
-    public ResponseEntity<?> getUserByEmail(@PathVariable String email) {
+    public ResponseEntity<?> getUserByEmail(@PathVariable String email,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
             Optional<User> user = userService.getUserByEmail(email);
             if (user.isPresent()) {
-                return ResponseEntity.ok(user.get());
+                return profile(user.get(), ifNoneMatch);
             } else {
                 return ResponseEntity.notFound().build();
             }
@@ -68,6 +109,28 @@ public class UserController {
         }
     }
 
+    @DeleteMapping("/profile")
+    public ResponseEntity<?> deactivateUser(Authentication authentication) {
+        try {
+            userService.deactivateUser(authentication.getName());
+            return ResponseEntity.ok().body("{\"success\": true}");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    // Raw image bytes in the request body; thumbnails are generated in the background
+    @PutMapping("/profile/avatar")
+    public ResponseEntity<?> updateAvatar(HttpServletRequest request,
+                                        Authentication authentication) {
+        try {
+            User user = userService.updateAvatar(authentication.getName(), request.getInputStream());
+            return ResponseEntity.ok(user);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/follow/{email}")
     public ResponseEntity<?> followUser(@PathVariable String email, 
                                       Authentication authentication) {
@@ -93,12 +156,23 @@ public class UserController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<?> searchUsers(@RequestParam String query) {
+    public ResponseEntity<?> searchUsers(@RequestParam String query,
+                                       @RequestParam(required = false) Integer limit) {
         try {
-            List<User> users = userService.searchUsers(query);
+            List<UserSummary> users = userService.searchUsers(query, limit);
             return ResponseEntity.ok(users);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Profiles come from the user cache, so the ETag check is in memory; a match returns 304 with no body
+    private ResponseEntity<?> profile(User user, String ifNoneMatch) {
+        String etag = UserService.eTagFor(user);
+        CacheControl revalidate = CacheControl.noCache().cachePrivate();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(revalidate).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(revalidate).body(user);
+    }
+}
@@ -0,0 +1,17 @@
+package com.socialmedia.dto;
+
+public class HeartbeatRequest {
+    // "online" (default), "away" or "offline"
+    private String state;
+    
+    // Id of the user whose conversation is being typed into; omit or null when not typing
+    private Long typingTo;
+    
+    public HeartbeatRequest() {}
+    
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+    
+    public Long getTypingTo() { return typingTo; }
+    public void setTypingTo(Long typingTo) { this.typingTo = typingTo; }
+}
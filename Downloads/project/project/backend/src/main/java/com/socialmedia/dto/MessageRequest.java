@@ -9,10 +9,8 @@ public class MessageRequest {
     @NotBlank(message = "Content is required")
     private String content;
     
-    // Media fields
-    private String mediaData;
-    private String mediaType;
-    private String mediaFilename;
+    // Id of a completed chunked upload (see /api/media/uploads)
+    private String uploadId;
     
     public MessageRequest() {}
     
@@ -27,12 +25,6 @@ public class MessageRequest {
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
     
-    public String getMediaData() { return mediaData; }
-    public void setMediaData(String mediaData) { this.mediaData = mediaData; }
-    
-    public String getMediaType() { return mediaType; }
-    public void setMediaType(String mediaType) { this.mediaType = mediaType; }
-    
-    public String getMediaFilename() { return mediaFilename; }
-    public void setMediaFilename(String mediaFilename) { this.mediaFilename = mediaFilename; }
+    public String getUploadId() { return uploadId; }
+    public void setUploadId(String uploadId) { this.uploadId = uploadId; }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.socialmedia.dto;
+
+import com.socialmedia.model.Message;
+
+import java.time.LocalDateTime;
+
+// Read-only view of a message for conversation pages and unread lists; only the columns the UI renders
+public class MessageView {
+    private final Long id;
+    private final String senderEmail;
+    private final String recipientEmail;
+    private final Long senderId;
+    private final String content;
+    private final LocalDateTime timestamp;
+    private final boolean read;
+    private final Long mediaId;
+    private final String mediaType;
+    private final String mediaFilename;
+
+    public MessageView(Long id, String senderEmail, String recipientEmail, Long senderId, String content,
+                       LocalDateTime timestamp, boolean read, Long mediaId, String mediaType, String mediaFilename) {
+        this.id = id;
+        this.senderEmail = senderEmail;
+        this.recipientEmail = recipientEmail;
+        this.senderId = senderId;
+        this.content = content;
+        this.timestamp = timestamp;
+        this.read = read;
+        this.mediaId = mediaId;
+        this.mediaType = mediaType;
+        this.mediaFilename = mediaFilename;
+    }
+
+    // Archived messages come back as entities decoded from the segment files
+    public static MessageView of(Message message) {
+        return new MessageView(message.getId(), message.getSenderEmail(), message.getRecipientEmail(),
+                message.getSenderId(), message.getContent(), message.getTimestamp(), message.isRead(),
+                message.getMediaId(), message.getMediaType(), message.getMediaFilename());
+    }
+
+    public Long getId() { return id; }
+
+    public String getSenderEmail() { return senderEmail; }
+
+    public String getRecipientEmail() { return recipientEmail; }
+
+    public Long getSenderId() { return senderId; }
+
+    public String getContent() { return content; }
+
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    public boolean isRead() { return read; }
+
+    public Long getMediaId() { return mediaId; }
+
+    public String getMediaType() { return mediaType; }
+
+    public String getMediaFilename() { return mediaFilename; }
+}
@@ -0,0 +1,24 @@
+package com.socialmedia.dto;
+
+public class UploadInitRequest {
+    private String filename;
+    private String contentType;
+    private Long totalSize;
+    
+    public UploadInitRequest() {}
+    
+    public UploadInitRequest(String filename, String contentType, Long totalSize) {
+        this.filename = filename;
+        this.contentType = contentType;
+        this.totalSize = totalSize;
+    }
+    
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+    
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    
+    public Long getTotalSize() { return totalSize; }
+    public void setTotalSize(Long totalSize) { this.totalSize = totalSize; }
+}
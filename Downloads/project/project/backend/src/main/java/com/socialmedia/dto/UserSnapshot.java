@@ -0,0 +1,90 @@
+package com.socialmedia.dto;
+
+import com.socialmedia.model.User;
+
+import java.time.LocalDateTime;
+
+// Immutable copy of a user as held by UserCache; never carries the password hash.
+// toUser() hands out a fresh detached User, so callers can tweak it without touching the cache.
+public final class UserSnapshot {
+    private final Long id;
+    private final String username;
+    private final String displayName;
+    private final String email;
+    private final String avatar;
+    private final String bio;
+    private final String location;
+    private final String website;
+    private final String birthDate;
+    private final String profession;
+    private final int followers;
+    private final int followingCount;
+    private final LocalDateTime joinDate;
+    private final LocalDateTime lastModified;
+    private final boolean active;
+    private final String role;
+
+    public UserSnapshot(User user) {
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.displayName = user.getDisplayName();
+        this.email = user.getEmail();
+        this.avatar = user.getAvatar();
+        this.bio = user.getBio();
+        this.location = user.getLocation();
+        this.website = user.getWebsite();
+        this.birthDate = user.getBirthDate();
+        this.profession = user.getProfession();
+        this.followers = user.getFollowers();
+        this.followingCount = user.getFollowingCount();
+        this.joinDate = user.getJoinDate();
+        this.lastModified = user.getLastModified();
+        this.active = user.isActive();
+        this.role = user.getRole();
+    }
+
+    public User toUser() {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setDisplayName(displayName);
+        user.setEmail(email);
+        user.setAvatar(avatar);
+        user.setBio(bio);
+        user.setLocation(location);
+        user.setWebsite(website);
+        user.setBirthDate(birthDate);
+        user.setProfession(profession);
+        user.setFollowers(followers);
+        user.setFollowingCount(followingCount);
+        user.setJoinDate(joinDate);
+        user.setLastModified(lastModified);
+        user.setActive(active);
+        user.setRole(role);
+        return user;
+    }
+
+    public UserSummary toSummary() {
+        return new UserSummary(id, username, displayName, email, avatar);
+    }
+
+    public Long getId() { return id; }
+
+    public String getUsername() { return username; }
+
+    public String getDisplayName() { return displayName; }
+
+    public String getEmail() { return email; }
+
+    public String getAvatar() { return avatar; }
+
+    public int getFollowers() { return followers; }
+
+    public int getFollowingCount() { return followingCount; }
+
+    public LocalDateTime getLastModified() { return lastModified; }
+
+    public boolean isActive() { return active; }
+
+    public boolean isAdmin() { return User.ROLE_ADMIN.equals(role); }
+}
@@ -0,0 +1,28 @@
+package com.socialmedia.dto;
+
+// Slim, read-only view of a user for lists and search results
+public class UserSummary {
+    private final Long id;
+    private final String username;
+    private final String displayName;
+    private final String email;
+    private final String avatar;
+    
+    public UserSummary(Long id, String username, String displayName, String email, String avatar) {
+        this.id = id;
+        this.username = username;
+        this.displayName = displayName;
+        this.email = email;
+        this.avatar = avatar;
+    }
+    
+    public Long getId() { return id; }
+    
+    public String getUsername() { return username; }
+    
+    public String getDisplayName() { return displayName; }
+    
+    public String getEmail() { return email; }
+    
+    public String getAvatar() { return avatar; }
+}
@@ -0,0 +1,14 @@
+package com.socialmedia.event;
+
+import com.socialmedia.model.Message;
+
+// Published inside the deleting transaction; listeners act after it commits
+public class MessageDeletedEvent {
+    private final Message message;
+    
+    public MessageDeletedEvent(Message message) {
+        this.message = message;
+    }
+    
+    public Message getMessage() { return message; }
+}
@@ -0,0 +1,14 @@
+package com.socialmedia.event;
+
+import com.socialmedia.model.Message;
+
+// Published inside the markAsRead transaction; listeners act after it commits
+public class MessageReadEvent {
+    private final Message message;
+    
+    public MessageReadEvent(Message message) {
+        this.message = message;
+    }
+    
+    public Message getMessage() { return message; }
+}
@@ -0,0 +1,14 @@
+package com.socialmedia.event;
+
+import com.socialmedia.model.Message;
+
+// Published inside the sending transaction; listeners act after it commits
+public class MessageSentEvent {
+    private final Message message;
+    
+    public MessageSentEvent(Message message) {
+        this.message = message;
+    }
+    
+    public Message getMessage() { return message; }
+}
@@ -0,0 +1,90 @@
+package com.socialmedia.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// One row per (owner, partner) pair, maintained alongside every message write so the inbox
+// never has to scan the messages table.
+@Entity
+@Table(name = "conversation_summaries",
+    uniqueConstraints = @UniqueConstraint(name = "uk_summary_owner_partner", columnNames = {"owner_email", "partner_email"}),
+    indexes = @Index(name = "idx_summary_owner_last_message", columnList = "owner_email, last_message_id"))
+public class ConversationSummary {
+    public static final int PREVIEW_LENGTH = 140;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "owner_email", nullable = false)
+    private String ownerEmail;
+    
+    @Column(name = "partner_email", nullable = false)
+    private String partnerEmail;
+    
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+    
+    @Column(name = "last_message_sender_email")
+    private String lastMessageSenderEmail;
+    
+    @Column(name = "last_message_preview", length = PREVIEW_LENGTH)
+    private String lastMessagePreview;
+    
+    @Column(name = "last_message_timestamp")
+    private LocalDateTime lastMessageTimestamp;
+    
+    @Column(name = "unread_count")
+    private int unreadCount = 0;
+    
+    // Bumped on every change visible in the conversation or the inbox row; feeds the HTTP ETags
+    @Column(name = "version", nullable = false)
+    private long version = 0;
+    
+    // Constructors
+    public ConversationSummary() {}
+    
+    public ConversationSummary(String ownerEmail, String partnerEmail) {
+        this.ownerEmail = ownerEmail;
+        this.partnerEmail = partnerEmail;
+    }
+    
+    public void applyLastMessage(Message message) {
+        String content = message.getContent();
+        this.lastMessageId = message.getId();
+        this.lastMessageSenderEmail = message.getSenderEmail();
+        this.lastMessagePreview = content != null && content.length() > PREVIEW_LENGTH
+                ? content.substring(0, PREVIEW_LENGTH) : content;
+        this.lastMessageTimestamp = message.getTimestamp();
+        this.version++;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getOwnerEmail() { return ownerEmail; }
+    public void setOwnerEmail(String ownerEmail) { this.ownerEmail = ownerEmail; }
+    
+    public String getPartnerEmail() { return partnerEmail; }
+    public void setPartnerEmail(String partnerEmail) { this.partnerEmail = partnerEmail; }
+    
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
+    
+    public String getLastMessageSenderEmail() { return lastMessageSenderEmail; }
+    public void setLastMessageSenderEmail(String lastMessageSenderEmail) { this.lastMessageSenderEmail = lastMessageSenderEmail; }
+    
+    public String getLastMessagePreview() { return lastMessagePreview; }
+    public void setLastMessagePreview(String lastMessagePreview) { this.lastMessagePreview = lastMessagePreview; }
+    
+    public LocalDateTime getLastMessageTimestamp() { return lastMessageTimestamp; }
+    public void setLastMessageTimestamp(LocalDateTime lastMessageTimestamp) { this.lastMessageTimestamp = lastMessageTimestamp; }
+    
+    public int getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(int unreadCount) { this.unreadCount = unreadCount; }
+    
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+}
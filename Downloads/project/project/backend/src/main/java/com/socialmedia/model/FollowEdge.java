@@ -0,0 +1,48 @@
+package com.socialmedia.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "follow_edges",
+    uniqueConstraints = @UniqueConstraint(name = "uk_follow_edge", columnNames = {"follower_id", "followee_id"}),
+    indexes = @Index(name = "idx_follow_edges_followee", columnList = "followee_id, follower_id"))
+public class FollowEdge {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "follower_id", nullable = false)
+    private Long followerId;
+    
+    @Column(name = "followee_id", nullable = false)
+    private Long followeeId;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public FollowEdge() {
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    public FollowEdge(Long followerId, Long followeeId) {
+        this();
+        this.followerId = followerId;
+        this.followeeId = followeeId;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getFollowerId() { return followerId; }
+    public void setFollowerId(Long followerId) { this.followerId = followerId; }
+    
+    public Long getFolloweeId() { return followeeId; }
+    public void setFolloweeId(Long followeeId) { this.followeeId = followeeId; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,30 @@
+package com.socialmedia.model;
+
+import jakarta.persistence.*;
+
+// High-water mark for ids assigned by the application rather than by AUTO_INCREMENT
+@Entity
+@Table(name = "id_allocations")
+public class IdAllocation {
+    @Id
+    @Column(length = 64)
+    private String name;
+    
+    @Column(name = "next_value", nullable = false)
+    private long nextValue;
+    
+    // Constructors
+    public IdAllocation() {}
+    
+    public IdAllocation(String name, long nextValue) {
+        this.name = name;
+        this.nextValue = nextValue;
+    }
+    
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    
+    public long getNextValue() { return nextValue; }
+    public void setNextValue(long nextValue) { this.nextValue = nextValue; }
+}
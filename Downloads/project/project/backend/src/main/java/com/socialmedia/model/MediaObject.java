@@ -0,0 +1,54 @@
+package com.socialmedia.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Attachment bytes live in the content-addressed file store; this row only records the hash
+@Entity
+@Table(name = "media_objects")
+public class MediaObject {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, unique = true, length = 64)
+    private String sha256;
+    
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+    
+    @Column(name = "content_type")
+    private String contentType;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public MediaObject() {
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    public MediaObject(String sha256, long sizeBytes, String contentType) {
+        this();
+        this.sha256 = sha256;
+        this.sizeBytes = sizeBytes;
+        this.contentType = contentType;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+    
+    public long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(long sizeBytes) { this.sizeBytes = sizeBytes; }
+    
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
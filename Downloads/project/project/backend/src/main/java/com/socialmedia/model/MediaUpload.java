@@ -0,0 +1,89 @@
+package com.socialmedia.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// A resumable upload session; chunks are appended in order to a staging file until complete
+@Entity
+@Table(name = "media_uploads", indexes = @Index(name = "idx_media_uploads_status_updated", columnList = "status, updated_at"))
+public class MediaUpload {
+    public static final String STATUS_UPLOADING = "UPLOADING";
+    public static final String STATUS_COMPLETE = "COMPLETE";
+
+    @Id
+    @Column(length = 36)
+    private String id;
+    
+    @Column(name = "owner_email", nullable = false)
+    private String ownerEmail;
+    
+    private String filename;
+    
+    @Column(name = "content_type")
+    private String contentType;
+    
+    @Column(name = "total_size", nullable = false)
+    private long totalSize;
+    
+    @Column(name = "received_bytes", nullable = false)
+    private long receivedBytes = 0;
+    
+    @Column(nullable = false, length = 16)
+    private String status = STATUS_UPLOADING;
+    
+    @Column(name = "media_id")
+    private Long mediaId;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public MediaUpload() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+    
+    public MediaUpload(String id, String ownerEmail, String filename, String contentType, long totalSize) {
+        this();
+        this.id = id;
+        this.ownerEmail = ownerEmail;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.totalSize = totalSize;
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getOwnerEmail() { return ownerEmail; }
+    public void setOwnerEmail(String ownerEmail) { this.ownerEmail = ownerEmail; }
+    
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+    
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    
+    public long getTotalSize() { return totalSize; }
+    public void setTotalSize(long totalSize) { this.totalSize = totalSize; }
+    
+    public long getReceivedBytes() { return receivedBytes; }
+    public void setReceivedBytes(long receivedBytes) { this.receivedBytes = receivedBytes; }
+    
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public Long getMediaId() { return mediaId; }
+    public void setMediaId(Long mediaId) { this.mediaId = mediaId; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
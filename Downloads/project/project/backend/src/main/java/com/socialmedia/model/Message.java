@@ -7,7 +7,10 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+    @Index(name = "idx_messages_conversation_id", columnList = "conversation_id, id"),
+    @Index(name = "idx_messages_recipient_read", columnList = "recipient_id, is_read")
+})
 public class Message {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,6 +24,16 @@ public class Message {
     @Column(name = "recipient_email")
     private String recipientEmail;
     
+    // Numeric participant ids; conversation_id packs the ordered id pair so a conversation is one index range
+    @Column(name = "sender_id")
+    private Long senderId;
+    
+    @Column(name = "recipient_id")
+    private Long recipientId;
+    
+    @Column(name = "conversation_id")
+    private Long conversationId;
+    
     @NotBlank(message = "Content is required")
     @Column(length = 1000)
     private String content;
@@ -32,10 +45,9 @@ public class Message {
     
     private boolean deleted = false;
     
-    // Media attachment (stored as base64)
-    @Lob
-    @Column(columnDefinition = "LONGTEXT")
-    private String mediaData;
+    // Media attachment, stored off-row in the content-addressed media store
+    @Column(name = "media_id")
+    private Long mediaId;
     
     private String mediaType;
     private String mediaFilename;
@@ -62,6 +74,26 @@ public class Message {
     public String getRecipientEmail() { return recipientEmail; }
     public void setRecipientEmail(String recipientEmail) { this.recipientEmail = recipientEmail; }
     
+    public Long getSenderId() { return senderId; }
+    public void setSenderId(Long senderId) { this.senderId = senderId; }
+    
+    public Long getRecipientId() { return recipientId; }
+    public void setRecipientId(Long recipientId) { this.recipientId = recipientId; }
+    
+    public Long getConversationId() { return conversationId; }
+    public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
+    
+    public void setParticipants(Long senderId, Long recipientId) {
+        this.senderId = senderId;
+        this.recipientId = recipientId;
+        this.conversationId = conversationIdFor(senderId, recipientId);
+    }
+    
+    // Lower id in the high 32 bits, higher id in the low 32 bits; the same for both directions
+    public static long conversationIdFor(long userId1, long userId2) {
+        return (Math.min(userId1, userId2) << 32) | Math.max(userId1, userId2);
+    }
+    
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
     
@@ -74,8 +106,10 @@ public class Message {
     public boolean isDeleted() { return deleted; }
     public void setDeleted(boolean deleted) { this.deleted = deleted; }
     
-    public String getMediaData() { return mediaData; }
-    public void setMediaData(String mediaData) { this.mediaData = mediaData; }
+    public Long getMediaId() { return mediaId; }
+    public void setMediaId(Long mediaId) { this.mediaId = mediaId; }
+    
+    public String getMediaUrl() { return mediaId != null && id != null ? "/api/messages/" + id + "/media" : null; }
     
     public String getMediaType() { return mediaType; }
     public void setMediaType(String mediaType) { this.mediaType = mediaType; }
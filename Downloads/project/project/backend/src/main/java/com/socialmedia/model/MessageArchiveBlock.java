@@ -0,0 +1,82 @@
+package com.socialmedia.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Index entry for one gzip block in an archive segment file.
+// A block holds archived messages of a single conversation; participants are stored in sorted order.
+@Entity
+@Table(name = "message_archive_blocks", indexes = {
+    @Index(name = "idx_archive_blocks_pair_last", columnList = "participant_a, participant_b, last_message_id"),
+    @Index(name = "idx_archive_blocks_participant_b", columnList = "participant_b, first_message_id"),
+    @Index(name = "idx_archive_blocks_range", columnList = "first_message_id, last_message_id")
+})
+public class MessageArchiveBlock {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "participant_a", nullable = false)
+    private String participantA;
+
+    @Column(name = "participant_b", nullable = false)
+    private String participantB;
+
+    @Column(nullable = false)
+    private String segment;
+
+    @Column(name = "byte_offset", nullable = false)
+    private long offset;
+
+    @Column(name = "byte_length", nullable = false)
+    private int length;
+
+    @Column(name = "first_message_id", nullable = false)
+    private Long firstMessageId;
+
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+
+    @Column(name = "message_count", nullable = false)
+    private int messageCount;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public MessageArchiveBlock() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getParticipantA() { return participantA; }
+    public void setParticipantA(String participantA) { this.participantA = participantA; }
+
+    public String getParticipantB() { return participantB; }
+    public void setParticipantB(String participantB) { this.participantB = participantB; }
+
+    public String getSegment() { return segment; }
+    public void setSegment(String segment) { this.segment = segment; }
+
+    public long getOffset() { return offset; }
+    public void setOffset(long offset) { this.offset = offset; }
+
+    public int getLength() { return length; }
+    public void setLength(int length) { this.length = length; }
+
+    public Long getFirstMessageId() { return firstMessageId; }
+    public void setFirstMessageId(Long firstMessageId) { this.firstMessageId = firstMessageId; }
+
+    public Long getLastMessageId() { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId) { this.lastMessageId = lastMessageId; }
+
+    public int getMessageCount() { return messageCount; }
+    public void setMessageCount(int messageCount) { this.messageCount = messageCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,52 @@
+package com.socialmedia.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Marks an archived message as deleted. Archive blocks are immutable, so reads filter these ids out
+// instead of rewriting the block. Participants are stored in sorted order, like the blocks.
+@Entity
+@Table(name = "message_tombstones", indexes = {
+    @Index(name = "idx_tombstones_pair", columnList = "participant_a, participant_b"),
+    @Index(name = "idx_tombstones_participant_b", columnList = "participant_b")
+})
+public class MessageTombstone {
+    @Id
+    @Column(name = "message_id")
+    private Long messageId;
+
+    @Column(name = "participant_a", nullable = false)
+    private String participantA;
+
+    @Column(name = "participant_b", nullable = false)
+    private String participantB;
+
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
+    // Constructors
+    public MessageTombstone() {
+        this.deletedAt = LocalDateTime.now();
+    }
+
+    public MessageTombstone(Long messageId, String participantA, String participantB) {
+        this();
+        this.messageId = messageId;
+        this.participantA = participantA;
+        this.participantB = participantB;
+    }
+
+    // Getters and Setters
+    public Long getMessageId() { return messageId; }
+    public void setMessageId(Long messageId) { this.messageId = messageId; }
+
+    public String getParticipantA() { return participantA; }
+    public void setParticipantA(String participantA) { this.participantA = participantA; }
+
+    public String getParticipantB() { return participantB; }
+    public void setParticipantB(String participantB) { this.participantB = participantB; }
+
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(LocalDateTime deletedAt) { this.deletedAt = deletedAt; }
+}
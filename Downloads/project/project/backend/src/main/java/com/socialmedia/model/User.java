@@ -1,5 +1,6 @@
 package com.socialmedia.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -7,11 +8,12 @@ import jakarta.validation.constraints.Size;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.ArrayList;
 
 @Entity
 @Table(name = "users")
 public class User {
+    public static final String ROLE_ADMIN = "ADMIN";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -33,8 +35,8 @@ public class User {
     @Size(min = 6, message = "Password must be at least 6 characters")
     private String password;
     
-    @Lob
-    @Column(columnDefinition = "LONGTEXT")
+    // Avatar URL; uploaded images live in the avatar store and are referenced by a versioned URL
+    @Column(length = 512)
     private String avatar;
     
     @Column(length = 500)
@@ -47,10 +49,12 @@ public class User {
     
     private int followers = 0;
     
-    @ElementCollection
-    @CollectionTable(name = "user_following", joinColumns = @JoinColumn(name = "user_id"))
-    @Column(name = "following_user_id")
-    private List<Long> following = new ArrayList<>();
+    @Column(name = "following_count", nullable = false)
+    private int followingCount = 0;
+    
+    // Edges live in follow_edges; this is only filled in for the signed-in user's own profile
+    @Transient
+    private List<Long> following;
     
     @Column(name = "join_date")
     private LocalDateTime joinDate;
@@ -60,6 +64,11 @@ public class User {
     
     private boolean active = true;
     
+    // Null for ordinary accounts; only ever set directly in the database, never through the API
+    @JsonIgnore
+    @Column(length = 16)
+    private String role;
+    
     // Constructors
     public User() {
         this.joinDate = LocalDateTime.now();
@@ -111,6 +120,9 @@ public class User {
     public int getFollowers() { return followers; }
     public void setFollowers(int followers) { this.followers = followers; }
     
+    public int getFollowingCount() { return followingCount; }
+    public void setFollowingCount(int followingCount) { this.followingCount = followingCount; }
+    
     public List<Long> getFollowing() { return following; }
     public void setFollowing(List<Long> following) { this.following = following; }
     
@@ -122,4 +134,7 @@ public class User {
     
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
+    
+    public String getRole() { return role; }
+    public void setRole(String role) { this.role = role; }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.socialmedia.repository;
+
+import com.socialmedia.model.ConversationSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ConversationSummary s WHERE s.ownerEmail = :owner AND s.partnerEmail = :partner")
+    Optional<ConversationSummary> findForUpdate(@Param("owner") String ownerEmail, @Param("partner") String partnerEmail);
+
+    // Creates the row if it is missing and leaves it exclusively locked either way. INSERT IGNORE would only
+    // take a shared lock on an existing row, which two senders would then both try to upgrade.
+    @Modifying
+    @Query(value = "INSERT INTO conversation_summaries (owner_email, partner_email, unread_count, version) "
+            + "VALUES (:owner, :partner, 0, 0) ON DUPLICATE KEY UPDATE version = version", nativeQuery = true)
+    int insertOrLock(@Param("owner") String ownerEmail, @Param("partner") String partnerEmail);
+    
+    @Query("SELECT s FROM ConversationSummary s WHERE s.ownerEmail = :owner ORDER BY s.lastMessageId DESC")
+    List<ConversationSummary> findInbox(@Param("owner") String ownerEmail, Pageable pageable);
+    
+    @Query("SELECT s.version FROM ConversationSummary s WHERE s.ownerEmail = :owner AND s.partnerEmail = :partner")
+    Optional<Long> findVersion(@Param("owner") String ownerEmail, @Param("partner") String partnerEmail);
+    
+    // Both sides see read receipts, so a read bumps both rows
+    @Modifying
+    @Query("UPDATE ConversationSummary s SET s.version = s.version + 1 WHERE (s.ownerEmail = :a AND s.partnerEmail = :b) OR (s.ownerEmail = :b AND s.partnerEmail = :a)")
+    int bumpVersion(@Param("a") String email1, @Param("b") String email2);
+    
+    @Modifying
+    @Query("UPDATE ConversationSummary s SET s.unreadCount = s.unreadCount - 1 WHERE s.ownerEmail = :owner AND s.partnerEmail = :partner AND s.unreadCount > 0")
+    int decrementUnread(@Param("owner") String ownerEmail, @Param("partner") String partnerEmail);
+}
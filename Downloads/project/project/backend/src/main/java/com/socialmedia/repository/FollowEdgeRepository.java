@@ -0,0 +1,31 @@
+package com.socialmedia.repository;
+
+import com.socialmedia.model.FollowEdge;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FollowEdgeRepository extends JpaRepository<FollowEdge, Long> {
+    boolean existsByFollowerIdAndFolloweeId(Long followerId, Long followeeId);
+    
+    @Modifying
+    @Query("DELETE FROM FollowEdge e WHERE e.followerId = :followerId AND e.followeeId = :followeeId")
+    int deleteEdge(@Param("followerId") Long followerId, @Param("followeeId") Long followeeId);
+    
+    // Full adjacency, used to fill the in-memory cache
+    @Query("SELECT e.followeeId FROM FollowEdge e WHERE e.followerId = :followerId ORDER BY e.followeeId")
+    List<Long> findAllFolloweeIds(@Param("followerId") Long followerId);
+    
+    // Keyset pages, answered straight from the unique and followee indexes
+    @Query("SELECT e.followeeId FROM FollowEdge e WHERE e.followerId = :followerId AND e.followeeId > :after ORDER BY e.followeeId")
+    List<Long> findFolloweeIdsAfter(@Param("followerId") Long followerId, @Param("after") Long after, Pageable pageable);
+    
+    @Query("SELECT e.followerId FROM FollowEdge e WHERE e.followeeId = :followeeId AND e.followerId > :after ORDER BY e.followerId")
+    List<Long> findFollowerIdsAfter(@Param("followeeId") Long followeeId, @Param("after") Long after, Pageable pageable);
+}
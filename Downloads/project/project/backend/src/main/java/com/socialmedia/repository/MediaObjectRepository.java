@@ -0,0 +1,12 @@
+package com.socialmedia.repository;
+
+import com.socialmedia.model.MediaObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface MediaObjectRepository extends JpaRepository<MediaObject, Long> {
+    Optional<MediaObject> findBySha256(String sha256);
+}
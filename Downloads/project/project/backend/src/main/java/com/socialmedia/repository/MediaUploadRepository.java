@@ -0,0 +1,15 @@
+package com.socialmedia.repository;
+
+import com.socialmedia.model.MediaUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MediaUploadRepository extends JpaRepository<MediaUpload, String> {
+    Optional<MediaUpload> findByIdAndOwnerEmail(String id, String ownerEmail);
+    List<MediaUpload> findByStatusAndUpdatedAtBefore(String status, LocalDateTime cutoff);
+}
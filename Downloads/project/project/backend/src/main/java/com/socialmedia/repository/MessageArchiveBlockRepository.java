@@ -0,0 +1,32 @@
+package com.socialmedia.repository;
+
+import com.socialmedia.model.MessageArchiveBlock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MessageArchiveBlockRepository extends JpaRepository<MessageArchiveBlock, Long> {
+    boolean existsByParticipantAAndParticipantB(String participantA, String participantB);
+
+    // Blocks holding messages older than the cursor, newest first
+    @Query("SELECT b FROM MessageArchiveBlock b WHERE b.participantA = :a AND b.participantB = :b AND b.firstMessageId < :before ORDER BY b.lastMessageId DESC")
+    List<MessageArchiveBlock> findBlocksBefore(@Param("a") String participantA, @Param("b") String participantB, @Param("before") Long before, Pageable pageable);
+
+    // Blocks holding messages newer than the cursor, oldest first
+    @Query("SELECT b FROM MessageArchiveBlock b WHERE b.participantA = :a AND b.participantB = :b AND b.lastMessageId > :after ORDER BY b.firstMessageId ASC")
+    List<MessageArchiveBlock> findBlocksAfter(@Param("a") String participantA, @Param("b") String participantB, @Param("after") Long after, Pageable pageable);
+
+    @Query("SELECT b FROM MessageArchiveBlock b WHERE b.participantA = :email OR b.participantB = :email ORDER BY b.firstMessageId")
+    List<MessageArchiveBlock> findByParticipant(@Param("email") String email);
+
+    // Keyset page over every block, for walks of the whole archive
+    List<MessageArchiveBlock> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT b FROM MessageArchiveBlock b WHERE b.firstMessageId <= :id AND b.lastMessageId >= :id")
+    List<MessageArchiveBlock> findBlocksContaining(@Param("id") Long id);
+}
@@ -1,27 +1,66 @@
 package com.socialmedia.repository;
 
+import com.socialmedia.dto.MessageView;
 import com.socialmedia.model.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
-    @Query("SELECT m FROM Message m WHERE ((m.senderEmail = :email1 AND m.recipientEmail = :email2) OR (m.senderEmail = :email2 AND m.recipientEmail = :email1)) AND m.deleted = false ORDER BY m.timestamp")
-    List<Message> findConversationBetweenUsers(@Param("email1") String email1, @Param("email2") String email2);
+    // Keyset pages of a conversation, each a single range scan on (conversation_id, id).
+    // Callers pass PageRequest.of(0, limit) so only one page is read; rows are projected straight into MessageView.
+    @Query("SELECT new com.socialmedia.dto.MessageView(m.id, m.senderEmail, m.recipientEmail, m.senderId, m.content, m.timestamp, m.read, m.mediaId, m.mediaType, m.mediaFilename) FROM Message m WHERE m.conversationId = :conversationId AND m.deleted = false ORDER BY m.id DESC")
+    List<MessageView> findLatestInConversation(@Param("conversationId") Long conversationId, Pageable pageable);
+    
+    @Query("SELECT new com.socialmedia.dto.MessageView(m.id, m.senderEmail, m.recipientEmail, m.senderId, m.content, m.timestamp, m.read, m.mediaId, m.mediaType, m.mediaFilename) FROM Message m WHERE m.conversationId = :conversationId AND m.deleted = false AND m.id < :before ORDER BY m.id DESC")
+    List<MessageView> findInConversationBefore(@Param("conversationId") Long conversationId, @Param("before") Long before, Pageable pageable);
+    
+    @Query("SELECT new com.socialmedia.dto.MessageView(m.id, m.senderEmail, m.recipientEmail, m.senderId, m.content, m.timestamp, m.read, m.mediaId, m.mediaType, m.mediaFilename) FROM Message m WHERE m.conversationId = :conversationId AND m.deleted = false AND m.id > :after ORDER BY m.id ASC")
+    List<MessageView> findInConversationAfter(@Param("conversationId") Long conversationId, @Param("after") Long after, Pageable pageable);
+    
+    // Hydrates message search hits; ids missing from the result were deleted or moved to the archive
+    @Query("SELECT new com.socialmedia.dto.MessageView(m.id, m.senderEmail, m.recipientEmail, m.senderId, m.content, m.timestamp, m.read, m.mediaId, m.mediaType, m.mediaFilename) FROM Message m WHERE m.id IN :ids AND m.deleted = false")
+    List<MessageView> findViewsByIds(@Param("ids") Collection<Long> ids);
+    
+    // Keyset pages for catching the search index up after a restart
+    @Query("SELECT m FROM Message m WHERE m.id > :after AND m.deleted = false ORDER BY m.id")
+    List<Message> findIndexableAfter(@Param("after") Long after, Pageable pageable);
     
     @Query("SELECT m FROM Message m WHERE (m.senderEmail = :email OR m.recipientEmail = :email) AND m.deleted = false ORDER BY m.timestamp DESC")
     List<Message> findAllUserMessages(@Param("email") String email);
     
-    @Query("SELECT m FROM Message m WHERE m.recipientEmail = :email AND m.read = false AND m.deleted = false")
-    List<Message> findUnreadMessages(@Param("email") String email);
+    @Query("SELECT new com.socialmedia.dto.MessageView(m.id, m.senderEmail, m.recipientEmail, m.senderId, m.content, m.timestamp, m.read, m.mediaId, m.mediaType, m.mediaFilename) FROM Message m WHERE m.recipientId = :recipientId AND m.read = false AND m.deleted = false")
+    List<MessageView> findUnreadMessages(@Param("recipientId") Long recipientId);
     
     @Query("SELECT m FROM Message m WHERE m.recipientEmail = :email AND m.deleted = false")
     List<Message> findReceivedMessages(@Param("email") String email);
     
     @Query("SELECT m FROM Message m WHERE m.senderEmail = :email AND m.deleted = false")
     List<Message> findSentMessages(@Param("email") String email);
+    
+    // Candidates for the cold archive: old messages that are read (unread ones stay hot so counters stay exact) or soft-deleted
+    @Query("SELECT m FROM Message m WHERE m.timestamp < :cutoff AND (m.read = true OR m.deleted = true) ORDER BY m.id")
+    List<Message> findArchivable(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    // Only the request that flips the flag sees 1, so a read is counted once however many arrive together
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Message m SET m.read = true WHERE m.id = :id AND m.read = false")
+    int markReadIfUnread(@Param("id") Long id);
+    
+    // Archiver delete for rows copied as live; a row soft-deleted since it was read is left in place
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.id IN :ids AND m.deleted = false")
+    int deleteLiveByIds(@Param("ids") Collection<Long> ids);
+    
+    // Per-direction totals used to backfill conversation summaries
+    @Query("SELECT m.senderEmail, m.recipientEmail, MAX(m.id), SUM(CASE WHEN m.read = false THEN 1 ELSE 0 END) FROM Message m WHERE m.deleted = false GROUP BY m.senderEmail, m.recipientEmail")
+    List<Object[]> aggregateByDirection();
 }
\ No newline at end of file
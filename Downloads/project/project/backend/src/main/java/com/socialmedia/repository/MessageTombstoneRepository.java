@@ -0,0 +1,21 @@
+package com.socialmedia.repository;
+
+import com.socialmedia.model.MessageTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MessageTombstoneRepository extends JpaRepository<MessageTombstone, Long> {
+    @Query("SELECT t.messageId FROM MessageTombstone t WHERE t.participantA = :a AND t.participantB = :b")
+    List<Long> findIdsByPair(@Param("a") String participantA, @Param("b") String participantB);
+
+    @Query("SELECT t.messageId FROM MessageTombstone t WHERE t.participantA = :email OR t.participantB = :email")
+    List<Long> findIdsByParticipant(@Param("email") String email);
+
+    @Query("SELECT t.messageId FROM MessageTombstone t")
+    List<Long> findAllIds();
+}
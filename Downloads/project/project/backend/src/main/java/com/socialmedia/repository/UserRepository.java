@@ -1,11 +1,16 @@
 package com.socialmedia.repository;
 
+import com.socialmedia.dto.UserSummary;
 import com.socialmedia.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
@@ -15,10 +20,30 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+    List<User> findByEmailIn(Collection<String> emails);
     
-    @Query("SELECT u FROM User u WHERE u.active = true")
-    List<User> findAllActiveUsers();
+    // Feeds the in-memory search index at startup; id order lets postings be built by appending
+    @Query("SELECT new com.socialmedia.dto.UserSummary(u.id, u.username, u.displayName, u.email, u.avatar) FROM User u WHERE u.active = true ORDER BY u.id")
+    List<UserSummary> findActiveUserSummaries();
     
-    @Query("SELECT u FROM User u WHERE (LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%')) OR LOWER(u.displayName) LIKE LOWER(CONCAT('%', :query, '%'))) AND u.active = true")
-    List<User> searchUsers(@Param("query") String query);
-}
\ No newline at end of file
+    // Keyset page of the user directory in id order
+    @Query("SELECT new com.socialmedia.dto.UserSummary(u.id, u.username, u.displayName, u.email, u.avatar) FROM User u WHERE u.active = true AND u.id > :after ORDER BY u.id")
+    List<UserSummary> findActiveSummariesAfter(@Param("after") Long after, Pageable pageable);
+    
+    @Query("SELECT u.id FROM User u WHERE u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+    
+    @Query("SELECT new com.socialmedia.dto.UserSummary(u.id, u.username, u.displayName, u.email, u.avatar) FROM User u WHERE u.id IN :ids")
+    List<UserSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Applied in SQL so concurrent follows never overwrite each other; followers goes through FollowerCounterService
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.followingCount = CASE WHEN u.followingCount + :delta < 0 THEN 0 ELSE u.followingCount + :delta END WHERE u.id = :id")
+    int adjustFollowingCount(@Param("id") Long id, @Param("delta") int delta);
+    
+    // Compare-and-set so a background rehash never overwrites a password changed in the meantime
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int updatePasswordIfUnchanged(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+}
@@ -1,47 +1,51 @@
 package com.socialmedia.security;
 
+import com.socialmedia.dto.UserSnapshot;
+import com.socialmedia.service.UserCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
+    private static final String STREAM_PATH = "/api/messages/stream";
+    private static final List<GrantedAuthority> ADMIN_AUTHORITIES = AuthorityUtils.createAuthorityList("ROLE_ADMIN");
+    
     @Autowired
     private JwtUtils jwtUtils;
     
+    @Autowired
+    private StreamTicketService streamTicketService;
+    
+    @Autowired
+    private UserCache userCache;
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String userEmail = jwtUtils.getUserIdFromJwtToken(jwt);
-                
-                // Create a simple UserDetails implementation with email as username
-                UserDetails userDetails = org.springframework.security.core.userdetails.User.builder()
-                        .username(userEmail)
-                        .password("")
-                        .authorities(new ArrayList<>())
-                        .build();
-                
-                UsernamePasswordAuthenticationToken authentication = 
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            // Single verification per request; repeat tokens are served from the verified-token cache
+            String userEmail = jwt != null ? jwtUtils.getSubjectIfValid(jwt) : redeemStreamTicket(request);
+            if (userEmail != null) {
+                // The email itself is the principal, so authentication.getName() keeps returning it.
+                // Roles come from the stored account, not the token, so a demotion applies on the next cache refresh.
+                boolean admin = userCache.getByEmail(userEmail).map(UserSnapshot::isAdmin).orElse(false);
+                SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                        userEmail, null, admin ? ADMIN_AUTHORITIES : AuthorityUtils.NO_AUTHORITIES));
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e);
@@ -59,4 +63,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         return null;
     }
+    
+    // EventSource cannot set headers, so the event stream takes a single-use ticket on the URL instead
+    private String redeemStreamTicket(HttpServletRequest request) {
+        String ticket = request.getParameter("ticket");
+        if (STREAM_PATH.equals(request.getRequestURI()) && StringUtils.hasText(ticket)) {
+            return streamTicketService.redeem(ticket);
+        }
+        return null;
+    }
 }
\ No newline at end of file
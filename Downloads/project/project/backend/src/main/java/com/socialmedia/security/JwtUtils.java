@@ -2,23 +2,54 @@ package com.socialmedia.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtils {
     
+    private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     @Value("${jwt.secret}")
     private String jwtSecret;
     
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
     
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @Value("${jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+    
+    // Key and parser are immutable and thread-safe, so they are built once
+    private Key signingKey;
+    private JwtParser parser;
+    private VerifiedTokenCache verifiedTokens;
+    private Counter cacheHits;
+    private Timer verifyValid;
+    private Timer verifyInvalid;
+    
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verifiedTokens = new VerifiedTokenCache(cacheMaxEntries);
+        cacheHits = Counter.builder("auth.jwt.cache.hits").register(meterRegistry);
+        verifyValid = Timer.builder("auth.jwt.verify").tag("result", "valid").register(meterRegistry);
+        verifyInvalid = Timer.builder("auth.jwt.verify").tag("result", "invalid").register(meterRegistry);
     }
     
     public String generateJwtToken(String userId) {
@@ -26,32 +57,57 @@ public class JwtUtils {
                 .setSubject(userId)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
     
-    public String getUserIdFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+    // Verifies the token once and returns its subject, or null if it is invalid or expired.
+    // Tokens seen before are answered from the cache until they expire.
+    public String getSubjectIfValid(String token) {
+        long now = System.currentTimeMillis();
+        String subject = verifiedTokens.getSubject(token, now);
+        if (subject != null) {
+            cacheHits.increment();
+            return subject;
+        }
+        
+        // Only cache misses pay for signature verification, so only they are timed
+        long start = System.nanoTime();
+        Claims claims = parseClaims(token);
+        boolean valid = claims != null && claims.getSubject() != null;
+        (valid ? verifyValid : verifyInvalid).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!valid) {
+            return null;
+        }
+        // Tokens without an expiry are still verified every time rather than cached forever
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(token, claims.getSubject(), claims.getExpiration().getTime(), now);
+        }
+        return claims.getSubject();
     }
     
-    public boolean validateJwtToken(String authToken) {
+    public Claims parseClaims(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(authToken);
-            return true;
+            return parser.parseClaimsJws(token).getBody();
         } catch (MalformedJwtException e) {
-            System.err.println("Invalid JWT token: " + e.getMessage());
+            logger.debug("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
-            System.err.println("JWT token is expired: " + e.getMessage());
+            logger.debug("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
-            System.err.println("JWT token is unsupported: " + e.getMessage());
+            logger.debug("JWT token is unsupported: {}", e.getMessage());
+        } catch (SignatureException e) {
+            logger.debug("Invalid JWT signature: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
-            System.err.println("JWT claims string is empty: " + e.getMessage());
+            logger.debug("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+    
+    public String getUserIdFromJwtToken(String token) {
+        return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+    
+    public boolean validateJwtToken(String authToken) {
+        return getSubjectIfValid(authToken) != null;
     }
-}
\ No newline at end of file
+}
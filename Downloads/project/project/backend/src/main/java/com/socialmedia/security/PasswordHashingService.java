@@ -0,0 +1,135 @@
+package com.socialmedia.security;
+
+import com.socialmedia.service.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+// Runs BCrypt on its own bounded pool so a login storm cannot pin every request thread.
+// When the pool and its queue are full, callers fail fast with ServiceBusyException instead of
+// piling up behind the hashes already in flight. Results come back as futures, so the request
+// thread is released while a hash waits or runs.
+@Service
+public class PasswordHashingService {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.security.hashing.threads:0}")
+    private int threads;
+
+    @Value("${app.security.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${app.security.hashing.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Value("${app.security.hashing.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledThreadPoolExecutor timeouts;
+    private Timer hashTimer;
+    private Counter rejections;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        timeouts = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timeouts.setRemoveOnCancelPolicy(true);
+
+        hashTimer = Timer.builder("auth.password.hash")
+                .description("Time spent in BCrypt encode/matches")
+                .register(meterRegistry);
+        rejections = Counter.builder("auth.password.rejected")
+                .description("Hash requests rejected because the pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Hash requests waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        timeouts.shutdownNow();
+    }
+
+    public CompletableFuture<String> encodeAsync(String rawPassword) throws ServiceBusyException {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public CompletableFuture<Boolean> matchesAsync(String rawPassword, String encodedPassword) throws ServiceBusyException {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // True when the stored hash was made with a different cost than the one configured now
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    // Re-hashes in the background; skipped silently if the pool is busy, the next login retries
+    public void rehashAsync(String rawPassword, Consumer<String> onHashed) {
+        try {
+            executor.execute(() -> onHashed.accept(hashTimer.record(() -> passwordEncoder.encode(rawPassword))));
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+        }
+    }
+
+    // Rejects up front when saturated; a hash not finished within the timeout fails the future
+    // with ServiceBusyException and is cancelled so it stops holding a queue slot
+    private <T> CompletableFuture<T> submit(Callable<T> task) throws ServiceBusyException {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    result.complete(hashTimer.recordCallable(task));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw busy();
+        }
+
+        ScheduledFuture<?> timeout = timeouts.schedule(() -> {
+            if (result.completeExceptionally(busy())) {
+                future.cancel(true);
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        result.whenComplete((value, error) -> timeout.cancel(false));
+        return result;
+    }
+
+    private ServiceBusyException busy() {
+        return new ServiceBusyException("Authentication service is busy, please retry shortly", retryAfterSeconds);
+    }
+}
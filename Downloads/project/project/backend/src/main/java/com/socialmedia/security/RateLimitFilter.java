@@ -0,0 +1,163 @@
+package com.socialmedia.security;
+
+import com.socialmedia.config.RateLimitProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Token buckets per (rule, client), where the client is the authenticated email or else the remote
+// address. Runs right after JwtAuthenticationFilter so signed-in users are keyed by account rather
+// than by a shared NAT address. Buckets are updated with compare-and-set only, and idle ones are
+// swept periodically; a bucket swept mid-request just lets that one request through.
+// The map is capped at max-buckets: once full, clients without a bucket of their own share one
+// overflow bucket per rule until the sweep frees room, so a flood of new keys cannot grow memory.
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Bucket> overflow = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("http.ratelimit.buckets", buckets, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                  FilterChain filterChain) throws ServletException, IOException {
+        RateLimitProperties.Rule rule = match(request);
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.nanoTime();
+        String key = rule.getName() + "|" + clientKey(request);
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            // Concurrent misses can overshoot the cap by at most the number of request threads
+            if (buckets.size() < properties.getMaxBuckets()) {
+                bucket = buckets.computeIfAbsent(key, k -> new Bucket(rule, now));
+            } else {
+                meterRegistry.counter("http.ratelimit.overflow", "rule", rule.getName()).increment();
+                bucket = overflow.computeIfAbsent(rule.getName(), k -> new Bucket(rule, now));
+            }
+        }
+
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        meterRegistry.counter("http.ratelimit.rejected", "rule", rule.getName()).increment();
+        long retryAfter = Math.max(1, (long) Math.ceil(waitNanos / 1e9));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"message\": \"Too many requests, please retry later\"}");
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.SECONDS.toNanos(properties.getIdleTimeoutSeconds());
+        buckets.values().removeIf(bucket -> bucket.isIdle(now, idleNanos));
+    }
+
+    private RateLimitProperties.Rule match(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        for (RateLimitProperties.Rule rule : properties.getRules()) {
+            if (rule.getMethod() != null && !rule.getMethod().equalsIgnoreCase(request.getMethod())) {
+                continue;
+            }
+            if (pathMatcher.match(rule.getPath(), path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    static final class Bucket {
+        private final double capacity;
+        private final double tokensPerNano;
+        private final AtomicReference<State> state;
+
+        Bucket(RateLimitProperties.Rule rule, long now) {
+            this.capacity = rule.getCapacity();
+            this.tokensPerNano = rule.getRefillPerSecond() / 1e9;
+            this.state = new AtomicReference<>(new State(capacity, now));
+        }
+
+        // Returns 0 when a token was taken, otherwise the nanos until one becomes available
+        long tryAcquire(long now) {
+            while (true) {
+                State current = state.get();
+                double tokens = refilled(current, now);
+                boolean allowed = tokens >= 1;
+                State next = new State(allowed ? tokens - 1 : tokens, Math.max(now, current.updatedAt));
+                if (state.compareAndSet(current, next)) {
+                    if (allowed) {
+                        return 0;
+                    }
+                    return tokensPerNano > 0 ? (long) Math.ceil((1 - tokens) / tokensPerNano) : Long.MAX_VALUE;
+                }
+            }
+        }
+
+        // Idle and already back to full, so dropping it loses nothing
+        boolean isIdle(long now, long idleNanos) {
+            State current = state.get();
+            return now - current.updatedAt > idleNanos && refilled(current, now) >= capacity;
+        }
+
+        private double refilled(State current, long now) {
+            long elapsed = Math.max(0, now - current.updatedAt);
+            return Math.min(capacity, current.tokens + elapsed * tokensPerNano);
+        }
+    }
+
+    private record State(double tokens, long updatedAt) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.socialmedia.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Short-lived, single-use tickets for opening the event stream. EventSource cannot send an
+// Authorization header, so the client trades its bearer token for a ticket and puts that on the
+// URL instead; a leaked ticket is useless once redeemed or after a few seconds.
+@Component
+public class StreamTicketService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Value("${app.realtime.ticket-ttl-ms:30000}")
+    private long ticketTtlMs;
+
+    private final ConcurrentHashMap<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    public String issue(String userEmail) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(ticket, new Ticket(userEmail, System.currentTimeMillis() + ticketTtlMs));
+        return ticket;
+    }
+
+    // Returns the ticket's user and consumes it, or null if it is unknown, used or expired
+    public String redeem(String ticket) {
+        Ticket entry = tickets.remove(ticket);
+        if (entry == null || entry.expiresAtMillis <= System.currentTimeMillis()) {
+            return null;
+        }
+        return entry.userEmail;
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        tickets.values().removeIf(entry -> entry.expiresAtMillis <= now);
+    }
+
+    private static final class Ticket {
+        final String userEmail;
+        final long expiresAtMillis;
+
+        Ticket(String userEmail, long expiresAtMillis) {
+            this.userEmail = userEmail;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.socialmedia.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Bounded cache of tokens whose signature has already been checked. Keys are SHA-256 digests,
+// so raw tokens are never retained, and entries stop matching as soon as the token expires.
+public class VerifiedTokenCache {
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public VerifiedTokenCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public String getSubject(String token, long nowMillis) {
+        String key = digest(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis <= nowMillis) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.subject;
+    }
+
+    public void put(String token, String subject, long expiresAtMillis, long nowMillis) {
+        if (entries.size() >= maxEntries) {
+            evict(nowMillis);
+        }
+        entries.put(digest(token), new Entry(subject, expiresAtMillis));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Drop expired entries first; if still full, shed an arbitrary tenth of the cache
+    private void evict(long nowMillis) {
+        entries.values().removeIf(entry -> entry.expiresAtMillis <= nowMillis);
+        int excess = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (excess-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        final String subject;
+        final long expiresAtMillis;
+
+        Entry(String subject, long expiresAtMillis) {
+            this.subject = subject;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -3,28 +3,55 @@ package com.socialmedia.service;
 import com.socialmedia.dto.AuthResponse;
 import com.socialmedia.dto.LoginRequest;
 import com.socialmedia.dto.SignupRequest;
+import com.socialmedia.dto.UserSnapshot;
 import com.socialmedia.model.User;
 import com.socialmedia.repository.UserRepository;
 import com.socialmedia.security.JwtUtils;
+import com.socialmedia.security.PasswordHashingService;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Service
+@Timed("app.service")
 public class AuthService {
 
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private JwtUtils jwtUtils;
 
-    public AuthResponse authenticateUser(LoginRequest loginRequest) throws Exception {
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FollowerCounterService followerCounterService;
+
+    @Autowired
+    private UserCache userCache;
+
+    // Database, cache and token work after a hash; the hashing pool is sized for hashes alone
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private Executor completionExecutor;
+
+    // Only the hash check runs on the hashing pool; the rest of the login continues on the application executor
+    public CompletableFuture<AuthResponse> authenticateUser(LoginRequest loginRequest) throws Exception {
         Optional<User> userOptional = userRepository.findByEmail(loginRequest.getEmail());
         
         if (userOptional.isEmpty()) {
@@ -37,8 +64,22 @@ public class AuthService {
             throw new Exception("Account is deactivated. Please contact administrator.");
         }
 
-        if (!passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) {
-            throw new Exception("Invalid password");
+        return passwordHashingService.matchesAsync(loginRequest.getPassword(), user.getPassword())
+                .thenApplyAsync(matches -> {
+                    if (!matches) {
+                        throw new CompletionException(new Exception("Invalid password"));
+                    }
+                    return completeLogin(user, loginRequest.getPassword());
+                }, completionExecutor);
+    }
+
+    private AuthResponse completeLogin(User user, String rawPassword) {
+        // Transparently move the stored hash to the currently configured cost
+        if (passwordHashingService.needsRehash(user.getPassword())) {
+            Long userId = user.getId();
+            String oldHash = user.getPassword();
+            passwordHashingService.rehashAsync(rawPassword,
+                    newHash -> userRepository.updatePasswordIfUnchanged(userId, oldHash, newHash));
         }
 
         // Generate JWT token with email as the subject
@@ -46,11 +87,13 @@ public class AuthService {
         
         // Remove password from response
         user.setPassword(null);
+        user.setFollowing(userService.getFollowingIds(user.getId()));
+        followerCounterService.applyPending(user);
         
         return new AuthResponse(jwt, user);
     }
 
-    public AuthResponse registerUser(SignupRequest signUpRequest) throws Exception {
+    public CompletableFuture<AuthResponse> registerUser(SignupRequest signUpRequest) throws Exception {
         if (userRepository.existsByUsername(signUpRequest.getUsername())) {
             throw new Exception("Username is already taken!");
         }
@@ -59,24 +102,31 @@ public class AuthService {
             throw new Exception("Email is already in use!");
         }
 
+        return passwordHashingService.encodeAsync(signUpRequest.getPassword())
+                .thenApplyAsync(hash -> createUser(signUpRequest, hash), completionExecutor);
+    }
+
+    private AuthResponse createUser(SignupRequest signUpRequest, String passwordHash) {
         // Create new user account
         User user = new User();
         user.setUsername(signUpRequest.getUsername());
         user.setDisplayName(signUpRequest.getDisplayName());
         user.setEmail(signUpRequest.getEmail());
-        user.setPassword(passwordEncoder.encode(signUpRequest.getPassword()));
+        user.setPassword(passwordHash);
 
         // Set default avatar
         user.setAvatar("https://images.pexels.com/photos/220453/pexels-photo-220453.jpeg?auto=compress&cs=tinysrgb&w=150");
         user.setBio("New member of this community");
 
         User savedUser = userRepository.save(user);
+        userSearchIndex.upsert(savedUser);
         
         // Generate JWT token with email as the subject
         String jwt = jwtUtils.generateJwtToken(savedUser.getEmail());
         
         // Remove password from response
         savedUser.setPassword(null);
+        savedUser.setFollowing(new ArrayList<>());
         
         return new AuthResponse(jwt, savedUser);
     }
@@ -84,24 +134,25 @@ public class AuthService {
     public User getCurrentUser(String token) throws Exception {
         try {
             String jwt = token.replace("Bearer ", "");
-            String userEmail = jwtUtils.getUserIdFromJwtToken(jwt);
+            String userEmail = jwtUtils.getSubjectIfValid(jwt);
             
             if (userEmail == null || userEmail.trim().isEmpty()) {
                 throw new Exception("Invalid token: no email found");
             }
             
-            Optional<User> userOptional = userRepository.findByEmail(userEmail);
-            if (userOptional.isEmpty()) {
+            Optional<UserSnapshot> snapshot = userCache.getByEmail(userEmail);
+            if (snapshot.isEmpty()) {
                 throw new Exception("User not found with email: " + userEmail);
             }
 
-            User user = userOptional.get();
+            // Snapshots never carry the password hash
+            User user = snapshot.get().toUser();
             if (!user.isActive()) {
                 throw new Exception("Account is deactivated");
             }
             
-            user.setPassword(null); // Remove password from response
-            return user;
+            user.setFollowing(userService.getFollowingIds(user.getId()));
+            return followerCounterService.applyPending(user);
         } catch (Exception e) {
             throw new Exception("Failed to get current user: " + e.getMessage());
         }
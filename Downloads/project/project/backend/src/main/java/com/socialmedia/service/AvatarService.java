@@ -0,0 +1,328 @@
+package com.socialmedia.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+// Stores each avatar once under a content-derived version and renders fixed-size thumbnails
+// on a small worker pool. URLs embed the version, so served files never change and can be
+// cached forever by browsers and proxies.
+@Service
+public class AvatarService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarService.class);
+
+    public static final int[] SIZES = {48, 150, 400};
+    public static final int DEFAULT_SIZE = 150;
+    private static final String ORIGINAL = "original";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.avatar.storage-dir:data/avatars}")
+    private String storageDir;
+
+    @Value("${app.avatar.base-url:http://localhost:8081}")
+    private String baseUrl;
+
+    @Value("${app.avatar.max-bytes:5242880}")
+    private int maxBytes;
+
+    @Value("${app.avatar.max-dimension:4096}")
+    private int maxDimension;
+
+    @Value("${app.avatar.worker-threads:2}")
+    private int workerThreads;
+
+    private Path root;
+    private ThreadPoolExecutor workers;
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(storageDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        // Overflowing jobs are rejected; a missing thumbnail is re-queued the first time it is requested
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(256), runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public String storeAvatar(Long userId, InputStream data) throws Exception {
+        byte[] bytes = data.readNBytes(maxBytes + 1);
+        if (bytes.length > maxBytes) {
+            throw new Exception("Avatar exceeds the maximum size of " + maxBytes + " bytes");
+        }
+        validateImage(bytes);
+
+        String version = version(bytes);
+        Path dir = versionDir(userId, version);
+        Files.createDirectories(dir);
+        Path original = dir.resolve(ORIGINAL);
+        if (!Files.exists(original)) {
+            Path staged = Files.createTempFile(dir, ORIGINAL, ".part");
+            Files.write(staged, bytes);
+            Files.move(staged, original, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            // Re-uploading an earlier image makes it the newest version again for cleanup purposes
+            Files.setLastModifiedTime(original, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+
+        for (int size : SIZES) {
+            scheduleThumbnail(userId, version, size);
+        }
+        return urlFor(userId, version, DEFAULT_SIZE);
+    }
+
+    // Call once the new avatar URL is saved on the user row. The version the row points at is kept
+    // along with anything stored after it, which may belong to an upload whose save has not landed yet.
+    public void removeStaleVersions(Long userId) {
+        try {
+            workers.execute(() -> removeVersionsOlderThanCurrent(userId));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Skipping avatar cleanup for user {}, worker queue is full", userId);
+        }
+    }
+
+    // Malformed input fails with IllegalArgumentException, storage failures with IOException
+    public String storeDataUri(Long userId, String dataUri) throws Exception {
+        int comma = dataUri.indexOf(',');
+        if (!dataUri.startsWith("data:") || comma < 0 || !dataUri.substring(0, comma).endsWith(";base64")) {
+            throw new IllegalArgumentException("Avatar must be a base64 data URI or an http(s) URL");
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getMimeDecoder().decode(dataUri.substring(comma + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid avatar data: " + e.getMessage());
+        }
+        return storeAvatar(userId, new ByteArrayInputStream(bytes));
+    }
+
+    // Returns the thumbnail if rendered, otherwise the original (and queues the thumbnail)
+    public Optional<Path> resolve(Long userId, String version, int size) {
+        if (!version.matches("[0-9a-f]{16}") || Arrays.stream(SIZES).noneMatch(s -> s == size)) {
+            return Optional.empty();
+        }
+        Path thumbnail = thumbnailPath(userId, version, size);
+        if (Files.exists(thumbnail)) {
+            return Optional.of(thumbnail);
+        }
+        Path original = versionDir(userId, version).resolve(ORIGINAL);
+        if (Files.exists(original)) {
+            scheduleThumbnail(userId, version, size);
+            return Optional.of(original);
+        }
+        return Optional.empty();
+    }
+
+    public boolean isThumbnail(Path path) {
+        return !path.getFileName().toString().equals(ORIGINAL);
+    }
+
+    public String urlFor(Long userId, String version, int size) {
+        return baseUrl + "/api/avatars/" + userId + "/" + version + "/" + size;
+    }
+
+    // Moves data-URI avatars saved before this store existed out of the users table
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateInlineAvatars() {
+        try {
+            List<Map<String, Object>> rows;
+            long lastId = 0;
+            do {
+                rows = jdbcTemplate.queryForList(
+                        "SELECT id, avatar FROM users WHERE avatar LIKE 'data:%' AND id > ? ORDER BY id LIMIT 50", lastId);
+                for (Map<String, Object> row : rows) {
+                    Long userId = ((Number) row.get("id")).longValue();
+                    lastId = userId;
+                    String url;
+                    try {
+                        url = storeDataUri(userId, (String) row.get("avatar"));
+                    } catch (IOException e) {
+                        // Left inline so the next start retries it
+                        logger.warn("Could not store avatar for user {}, keeping it inline: {}", userId, e.getMessage());
+                        continue;
+                    } catch (Exception e) {
+                        logger.warn("Dropping unreadable avatar for user {}: {}", userId, e.getMessage());
+                        url = null;
+                    }
+                    jdbcTemplate.update("UPDATE users SET avatar = ? WHERE id = ?", url, userId);
+                    if (url != null) {
+                        removeStaleVersions(userId);
+                    }
+                }
+            } while (!rows.isEmpty());
+        } catch (Exception e) {
+            logger.error("Inline avatar migration failed", e);
+        }
+    }
+
+    private void scheduleThumbnail(Long userId, String version, int size) {
+        Path target = thumbnailPath(userId, version, size);
+        if (!pending.add(target)) {
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    renderThumbnail(versionDir(userId, version).resolve(ORIGINAL), target, size);
+                } catch (Exception e) {
+                    logger.warn("Failed to render {}px avatar for user {}: {}", size, userId, e.getMessage());
+                } finally {
+                    pending.remove(target);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(target);
+        }
+    }
+
+    private void renderThumbnail(Path original, Path target, int size) throws IOException {
+        if (Files.exists(target)) {
+            return;
+        }
+        BufferedImage source = ImageIO.read(original.toFile());
+        if (source == null) {
+            throw new IOException("Unsupported image format");
+        }
+
+        // Centre-crop to a square, then scale onto an opaque canvas for JPEG output
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - side) / 2;
+        int y = (source.getHeight() - side) / 2;
+        BufferedImage thumbnail = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, size, size);
+            graphics.drawImage(source, 0, 0, size, size, x, y, x + side, y + side, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(thumbnail, "jpg", out);
+        Path staged = Files.createTempFile(target.getParent(), size + "-", ".part");
+        Files.write(staged, out.toByteArray());
+        Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void removeVersionsOlderThanCurrent(Long userId) {
+        List<String> avatars = jdbcTemplate.queryForList("SELECT avatar FROM users WHERE id = ?", String.class, userId);
+        String current = avatars.isEmpty() ? null : storedVersion(userId, avatars.get(0));
+        if (current == null) {
+            // Replaced by an external URL in the meantime; there is no stored version to order against
+            return;
+        }
+        try {
+            FileTime cutoff = Files.getLastModifiedTime(versionDir(userId, current).resolve(ORIGINAL));
+            try (Stream<Path> versions = Files.list(root.resolve(String.valueOf(userId)))) {
+                versions.filter(dir -> !dir.getFileName().toString().equals(current))
+                        .filter(dir -> storedBefore(dir, cutoff))
+                        .forEach(this::deleteTree);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to clean old avatars for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private static boolean storedBefore(Path dir, FileTime cutoff) {
+        try {
+            return Files.getLastModifiedTime(dir.resolve(ORIGINAL)).compareTo(cutoff) < 0;
+        } catch (IOException e) {
+            // No original yet: either mid-upload or already half-deleted, so leave it alone
+            return false;
+        }
+    }
+
+    private String storedVersion(Long userId, String avatarUrl) {
+        String prefix = "/api/avatars/" + userId + "/";
+        int start = avatarUrl == null ? -1 : avatarUrl.indexOf(prefix);
+        if (start < 0 || avatarUrl.length() < start + prefix.length() + 16) {
+            return null;
+        }
+        String version = avatarUrl.substring(start + prefix.length(), start + prefix.length() + 16);
+        return version.matches("[0-9a-f]{16}") ? version : null;
+    }
+
+    private void deleteTree(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Failed to delete {}: {}", dir, e.getMessage());
+        }
+    }
+
+    // Reads only the image header, so oversized or non-image uploads are rejected without decoding them
+    private void validateImage(byte[] bytes) throws Exception {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = in == null ? Collections.emptyIterator() : ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new Exception("Avatar must be a PNG, JPEG, GIF or BMP image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if (reader.getWidth(0) > maxDimension || reader.getHeight(0) > maxDimension) {
+                    throw new Exception("Avatar dimensions exceed " + maxDimension + "px");
+                }
+            } catch (IOException e) {
+                throw new Exception("Avatar is not a readable image: " + e.getMessage());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Path versionDir(Long userId, String version) {
+        return root.resolve(String.valueOf(userId)).resolve(version);
+    }
+
+    private Path thumbnailPath(Long userId, String version, int size) {
+        return versionDir(userId, version).resolve(size + ".jpg");
+    }
+
+    private static String version(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes)).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.socialmedia.service;
+
+import com.socialmedia.model.ConversationSummary;
+import com.socialmedia.model.Message;
+import com.socialmedia.repository.ConversationSummaryRepository;
+import com.socialmedia.repository.MessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+@Service
+public class ConversationSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationSummaryService.class);
+
+    @Autowired
+    private ConversationSummaryRepository summaryRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    // Must run inside the transaction that saved the message
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSent(Message message) {
+        String sender = message.getSenderEmail();
+        String recipient = message.getRecipientEmail();
+
+        if (sender.equals(recipient)) {
+            ConversationSummary self = lockOrCreate(sender, recipient);
+            applyIfNewer(self, message);
+            summaryRepository.save(self);
+            return;
+        }
+
+        // Lock both rows in a fixed order so two users messaging each other do not wait on each other.
+        // Gap locks taken while the rows are first inserted can still deadlock; callers retry on that.
+        boolean senderFirst = sender.compareTo(recipient) < 0;
+        ConversationSummary first = senderFirst ? lockOrCreate(sender, recipient) : lockOrCreate(recipient, sender);
+        ConversationSummary second = senderFirst ? lockOrCreate(recipient, sender) : lockOrCreate(sender, recipient);
+        ConversationSummary recipientSide = senderFirst ? second : first;
+
+        applyIfNewer(first, message);
+        applyIfNewer(second, message);
+        recipientSide.setUnreadCount(recipientSide.getUnreadCount() + 1);
+        summaryRepository.save(first);
+        summaryRepository.save(second);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRead(Message message) {
+        summaryRepository.decrementUnread(message.getRecipientEmail(), message.getSenderEmail());
+        summaryRepository.bumpVersion(message.getRecipientEmail(), message.getSenderEmail());
+    }
+
+    // A deleted message stops counting as unread, and an inbox row previewing it falls back to the newest remaining one.
+    // Same lock order as recordSent: both rows are locked in sorted order before either is written.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Message message) {
+        String sender = message.getSenderEmail();
+        String recipient = message.getRecipientEmail();
+        List<ConversationSummary> locked = new ArrayList<>(2);
+        for (String owner : new TreeSet<>(List.of(sender, recipient))) {
+            String partner = owner.equals(sender) ? recipient : sender;
+            summaryRepository.findForUpdate(owner, partner).ifPresent(locked::add);
+        }
+
+        Optional<Message> latest = null;
+        for (ConversationSummary summary : locked) {
+            if (!message.isRead() && !sender.equals(recipient) && summary.getOwnerEmail().equals(recipient)) {
+                summary.setUnreadCount(Math.max(0, summary.getUnreadCount() - 1));
+            }
+            summary.setVersion(summary.getVersion() + 1);
+            if (message.getId().equals(summary.getLastMessageId())) {
+                if (latest == null) {
+                    latest = messageRepository.findLatestInConversation(message.getConversationId(), PageRequest.of(0, 1))
+                            .stream().findFirst().flatMap(view -> messageRepository.findById(view.getId()));
+                }
+                if (latest.isPresent()) {
+                    summary.applyLastMessage(latest.get());
+                } else {
+                    summary.setLastMessagePreview(null);
+                }
+            }
+            summaryRepository.save(summary);
+        }
+    }
+
+    public long getVersion(String ownerEmail, String partnerEmail) {
+        return summaryRepository.findVersion(ownerEmail, partnerEmail).orElse(0L);
+    }
+
+    public List<ConversationSummary> getInbox(String ownerEmail, int page, int size) {
+        return summaryRepository.findInbox(ownerEmail, PageRequest.of(page, size));
+    }
+
+    // Sends can commit out of id order, so an older message arriving late must not replace the preview
+    private static void applyIfNewer(ConversationSummary summary, Message message) {
+        if (summary.getLastMessageId() == null || message.getId() > summary.getLastMessageId()) {
+            summary.applyLastMessage(message);
+        }
+    }
+
+    // Upsert first so the row always exists to lock; a plain select-then-insert lets two first messages
+    // both miss and then collide on the unique key
+    private ConversationSummary lockOrCreate(String owner, String partner) {
+        summaryRepository.insertOrLock(owner, partner);
+        return summaryRepository.findForUpdate(owner, partner)
+                .orElseThrow(() -> new IllegalStateException("Conversation summary vanished after insert"));
+    }
+
+    // One-time backfill for databases that have messages from before the summary table existed
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (summaryRepository.count() > 0 || messageRepository.count() == 0) {
+            return;
+        }
+        logger.info("Building conversation summaries from message history");
+
+        Map<List<String>, ConversationSummary> summaries = new HashMap<>();
+        Map<Long, List<ConversationSummary>> byLastMessage = new HashMap<>();
+
+        for (Object[] row : messageRepository.aggregateByDirection()) {
+            String sender = (String) row[0];
+            String recipient = (String) row[1];
+            Long lastId = ((Number) row[2]).longValue();
+            int unread = ((Number) row[3]).intValue();
+
+            ConversationSummary senderSide = summaries.computeIfAbsent(List.of(sender, recipient),
+                    k -> new ConversationSummary(sender, recipient));
+            ConversationSummary recipientSide = summaries.computeIfAbsent(List.of(recipient, sender),
+                    k -> new ConversationSummary(recipient, sender));
+            if (!sender.equals(recipient)) {
+                recipientSide.setUnreadCount(recipientSide.getUnreadCount() + unread);
+            }
+            for (ConversationSummary summary : List.of(senderSide, recipientSide)) {
+                if (summary.getLastMessageId() == null || summary.getLastMessageId() < lastId) {
+                    summary.setLastMessageId(lastId);
+                }
+            }
+        }
+
+        for (ConversationSummary summary : summaries.values()) {
+            byLastMessage.computeIfAbsent(summary.getLastMessageId(), k -> new ArrayList<>()).add(summary);
+        }
+        for (Message message : messageRepository.findAllById(byLastMessage.keySet())) {
+            byLastMessage.get(message.getId()).forEach(summary -> summary.applyLastMessage(message));
+        }
+
+        summaryRepository.saveAll(summaries.values());
+        logger.info("Built {} conversation summaries", summaries.size());
+    }
+}
@@ -0,0 +1,150 @@
+package com.socialmedia.service;
+
+import com.socialmedia.model.FollowEdge;
+import com.socialmedia.repository.FollowEdgeRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Follow edges live in their own table with a (follower, followee) unique key.
+// Hot "who does X follow" lists are cached as sorted long[] so isFollowing is a binary search.
+@Service
+public class FollowGraphService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FollowGraphService.class);
+
+    @Autowired
+    private FollowEdgeRepository followEdgeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${app.follow.cache-max-users:10000}")
+    private int cacheMaxUsers;
+
+    private Map<Long, long[]> followingCache;
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private long cacheGeneration = 0;
+
+    @PostConstruct
+    public void init() {
+        followingCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > cacheMaxUsers;
+            }
+        };
+    }
+
+    public boolean isFollowing(Long followerId, Long followeeId) {
+        return Arrays.binarySearch(getFollowingIds(followerId), followeeId) >= 0;
+    }
+
+    public long[] getFollowingIds(Long followerId) {
+        long generation;
+        synchronized (followingCache) {
+            long[] cached = followingCache.get(followerId);
+            if (cached != null) {
+                return cached;
+            }
+            generation = cacheGeneration;
+        }
+        long[] loaded = followEdgeRepository.findAllFolloweeIds(followerId).stream().mapToLong(Long::longValue).toArray();
+        synchronized (followingCache) {
+            if (generation == cacheGeneration) {
+                followingCache.putIfAbsent(followerId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    // Returns false if the edge already existed. Must run inside the caller's transaction.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean follow(Long followerId, Long followeeId) {
+        if (followEdgeRepository.existsByFollowerIdAndFolloweeId(followerId, followeeId)) {
+            return false;
+        }
+        followEdgeRepository.save(new FollowEdge(followerId, followeeId));
+        invalidateAfterCommit(followerId);
+        return true;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean unfollow(Long followerId, Long followeeId) {
+        boolean removed = followEdgeRepository.deleteEdge(followerId, followeeId) > 0;
+        if (removed) {
+            invalidateAfterCommit(followerId);
+        }
+        return removed;
+    }
+
+    public List<Long> getFollowingPage(Long userId, Long after, int size) {
+        return followEdgeRepository.findFolloweeIdsAfter(userId, after == null ? 0L : after, PageRequest.of(0, size));
+    }
+
+    public List<Long> getFollowersPage(Long userId, Long after, int size) {
+        return followEdgeRepository.findFollowerIdsAfter(userId, after == null ? 0L : after, PageRequest.of(0, size));
+    }
+
+    private void invalidateAfterCommit(Long followerId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                synchronized (followingCache) {
+                    followingCache.remove(followerId);
+                    cacheGeneration++;
+                }
+            }
+        });
+    }
+
+    // Copies edges out of the old user_following element-collection table, then recomputes counters
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyFollowing() {
+        try {
+            if (followEdgeRepository.count() > 0 || !hasLegacyTable()) {
+                return;
+            }
+            int copied = jdbcTemplate.update("INSERT INTO follow_edges (follower_id, followee_id, created_at) "
+                    + "SELECT DISTINCT user_id, following_user_id, CURRENT_TIMESTAMP FROM user_following "
+                    + "WHERE following_user_id IS NOT NULL AND user_id <> following_user_id");
+            if (copied > 0) {
+                jdbcTemplate.update("UPDATE users SET following_count = (SELECT COUNT(*) FROM follow_edges e WHERE e.follower_id = users.id), "
+                        + "followers = (SELECT COUNT(*) FROM follow_edges e WHERE e.followee_id = users.id)");
+                logger.info("Migrated {} follow edges from user_following", copied);
+            }
+        } catch (Exception e) {
+            logger.error("Follow graph migration failed", e);
+        }
+    }
+
+    private boolean hasLegacyTable() throws Exception {
+        return JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> {
+            try (ResultSet tables = metaData.getTables(metaData.getConnection().getCatalog(), null, "user_following", null)) {
+                return tables.next();
+            }
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package com.socialmedia.service;
+
+import com.socialmedia.dto.UserSnapshot;
+import com.socialmedia.model.User;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Follower counts for popular accounts would otherwise serialize every follow on one row lock.
+// Committed follows only bump a striped in-memory LongAdder; a scheduled flush folds the
+// accumulated deltas into users.followers with relative UPDATEs, and reads add whatever is
+// still pending, so the total is exact once the flush catches up.
+// Reads and flushes are serialised on a read/write lock: a flush commits and subtracts under the
+// write lock, so no reader can see the new row value together with the not-yet-subtracted delta.
+// The flush takes its connection before the lock, so it never holds up readers while it waits for
+// the pool, and readers are expected to call in only after their own transaction has finished.
+@Service
+public class FollowerCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FollowerCounterService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserCache userCache;
+
+    private final PlatformTransactionManager transactionManager;
+
+    // One adder per followed user. Entries are never removed, so an increment can never land on
+    // an adder the flusher has already dropped; the map is bounded by the number of users.
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    public FollowerCounterService(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    // Applies the delta once the surrounding transaction commits; rolled-back follows never count
+    public void recordAfterCommit(Long userId, int delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(userId, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(userId, delta);
+            }
+        });
+    }
+
+    public long getPending(Long userId) {
+        LongAdder adder = pending.get(userId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    // The stored count is re-read under the lock: the caller's copy may predate a flush that has
+    // since taken its delta out of pending
+    public User applyPending(User user) {
+        if (user != null && user.getId() != null) {
+            flushLock.readLock().lock();
+            try {
+                long stored = userCache.getById(user.getId()).map(UserSnapshot::getFollowers).orElse(user.getFollowers());
+                user.setFollowers((int) Math.max(0, stored + getPending(user.getId())));
+            } finally {
+                flushLock.readLock().unlock();
+            }
+        }
+        return user;
+    }
+
+    @Scheduled(fixedDelayString = "${app.follow.counter-flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<Object[]> updates = new ArrayList<>();
+        List<Map.Entry<LongAdder, Long>> taken = new ArrayList<>();
+        pending.forEach((userId, adder) -> {
+            long delta = adder.sum();
+            if (delta != 0) {
+                updates.add(new Object[]{delta, userId});
+                taken.add(Map.entry(adder, delta));
+            }
+        });
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        TransactionStatus status = null;
+        boolean locked = false;
+        try {
+            status = transactionManager.getTransaction(TransactionDefinition.withDefaults());
+            jdbcTemplate.batchUpdate("UPDATE users SET followers = GREATEST(followers + ?, 0) WHERE id = ?", updates);
+            flushLock.writeLock().lock();
+            locked = true;
+            transactionManager.commit(status);
+            // Only the flushed amount is taken out; increments that raced with the flush stay pending
+            taken.forEach(entry -> entry.getKey().add(-entry.getValue()));
+            updates.forEach(update -> userCache.invalidate((Long) update[1]));
+        } catch (Exception e) {
+            if (status != null && !status.isCompleted()) {
+                transactionManager.rollback(status);
+            }
+            // Nothing was subtracted, so the same deltas are retried on the next run
+            logger.warn("Follower counter flush failed for {} users: {}", updates.size(), e.getMessage());
+        } finally {
+            if (locked) {
+                flushLock.writeLock().unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void add(Long userId, int delta) {
+        pending.computeIfAbsent(userId, id -> new LongAdder()).add(delta);
+    }
+}
@@ -0,0 +1,93 @@
+package com.socialmedia.service;
+
+import com.socialmedia.model.MediaObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+// Moves base64 attachments left in the old messages.media_data column into the media store.
+// The column itself is no longer mapped; it is only read here and nulled once migrated.
+@Component
+public class LegacyMediaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyMediaMigration.class);
+    private static final int BATCH_SIZE = 20;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MediaStorageService mediaStorageService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        try {
+            if (!hasLegacyColumn()) {
+                return;
+            }
+
+            int migrated = 0;
+            long lastId = 0;
+            while (true) {
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                        "SELECT id, media_data, media_type FROM messages WHERE media_data IS NOT NULL AND id > ? ORDER BY id LIMIT "
+                                + BATCH_SIZE, lastId);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Map<String, Object> row : rows) {
+                    lastId = ((Number) row.get("id")).longValue();
+                    if (migrateRow(lastId, (String) row.get("media_data"), (String) row.get("media_type"))) {
+                        migrated++;
+                    }
+                }
+            }
+            if (migrated > 0) {
+                logger.info("Moved {} legacy message attachments into the media store", migrated);
+            }
+        } catch (Exception e) {
+            logger.error("Legacy media migration failed", e);
+        }
+    }
+
+    // The inline copy is only cleared once it is stored or known to be undecodable; a storage
+    // failure leaves the row as it is so the next start retries it
+    private boolean migrateRow(long messageId, String mediaData, String mediaType) {
+        Long mediaId = null;
+        try {
+            MediaObject media = mediaStorageService.storeBase64(mediaData, mediaType);
+            mediaId = media.getId();
+            mediaType = mediaType != null ? mediaType : media.getContentType();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Dropping undecodable attachment on message {}: {}", messageId, e.getMessage());
+        } catch (IOException e) {
+            logger.warn("Could not store attachment on message {}, keeping it inline: {}", messageId, e.getMessage());
+            return false;
+        }
+        jdbcTemplate.update("UPDATE messages SET media_id = ?, media_type = ?, media_data = NULL WHERE id = ?",
+                mediaId, mediaType, messageId);
+        return true;
+    }
+
+    private boolean hasLegacyColumn() throws Exception {
+        return JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> {
+            try (ResultSet columns = metaData.getColumns(metaData.getConnection().getCatalog(), null, "messages", "media_data")) {
+                return columns.next();
+            }
+        });
+    }
+}
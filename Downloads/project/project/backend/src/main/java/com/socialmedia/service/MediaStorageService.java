@@ -0,0 +1,172 @@
+package com.socialmedia.service;
+
+import com.socialmedia.model.MediaObject;
+import com.socialmedia.repository.MediaObjectRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+// Content-addressed attachment store: bytes are written once under their SHA-256 and
+// identical uploads resolve to the same file and MediaObject row.
+@Service
+public class MediaStorageService {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Autowired
+    private MediaObjectRepository mediaObjectRepository;
+
+    @Value("${app.media.storage-dir:data/media}")
+    private String storageDir;
+
+    private Path root;
+    private Path tmp;
+    private Path uploads;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(storageDir).toAbsolutePath().normalize();
+        tmp = root.resolve("tmp");
+        uploads = root.resolve("uploads");
+        Files.createDirectories(tmp);
+        Files.createDirectories(uploads);
+    }
+
+    // Staging area for chunked uploads; on the same volume so completed files can be moved in atomically
+    public Path getUploadDirectory() {
+        return uploads;
+    }
+
+    public MediaObject store(ReadableByteChannel source, String contentType) throws IOException {
+        Path staged = Files.createTempFile(tmp, "media-", ".part");
+        try {
+            String sha256;
+            long size;
+            try (FileChannel out = FileChannel.open(staged, StandardOpenOption.WRITE)) {
+                sha256 = copyAndHash(source, out);
+                size = out.size();
+                out.force(false);
+            }
+            return commit(staged, sha256, size, contentType);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    // Accepts raw base64 or a data URI ("data:image/png;base64,..."). Malformed input fails with
+    // IllegalArgumentException before anything is written, so callers can tell it from a storage error
+    public MediaObject storeBase64(String data, String contentType) throws IOException {
+        if (data.startsWith("data:")) {
+            int comma = data.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Invalid data URI");
+            }
+            if (contentType == null) {
+                contentType = data.substring(5, comma).replace(";base64", "");
+            }
+            data = data.substring(comma + 1);
+        }
+        byte[] decoded = Base64.getMimeDecoder().decode(data);
+        return store(Channels.newChannel(new ByteArrayInputStream(decoded)), contentType);
+    }
+
+    // Takes ownership of an already written file (e.g. a completed chunked upload)
+    public MediaObject store(Path file, String contentType) throws IOException {
+        try {
+            String sha256;
+            long size;
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                sha256 = copyAndHash(in, null);
+                size = in.size();
+            }
+            return commit(file, sha256, size, contentType);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public Optional<MediaObject> findById(Long mediaId) {
+        return mediaObjectRepository.findById(mediaId);
+    }
+
+    // Streams [position, position + count) of the stored object without copying through the heap
+    public void transfer(MediaObject media, long position, long count, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel in = FileChannel.open(pathFor(media.getSha256()), StandardOpenOption.READ)) {
+            long end = position + count;
+            while (position < end) {
+                long sent = in.transferTo(position, end - position, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+        }
+        out.flush();
+    }
+
+    private MediaObject commit(Path staged, String sha256, long size, String contentType) throws IOException {
+        Optional<MediaObject> existing = mediaObjectRepository.findBySha256(sha256);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        Path target = pathFor(sha256);
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        try {
+            return mediaObjectRepository.save(new MediaObject(sha256, size, contentType));
+        } catch (DataIntegrityViolationException e) {
+            // Another request stored the same content concurrently
+            return mediaObjectRepository.findBySha256(sha256).orElseThrow(() -> e);
+        }
+    }
+
+    private String copyAndHash(ReadableByteChannel source, FileChannel out) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        while (source.read(buffer) != -1) {
+            buffer.flip();
+            digest.update(buffer.duplicate());
+            if (out != null) {
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+            buffer.clear();
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Path pathFor(String sha256) {
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
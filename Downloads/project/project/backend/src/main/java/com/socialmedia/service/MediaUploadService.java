@@ -0,0 +1,216 @@
+package com.socialmedia.service;
+
+import com.socialmedia.dto.UploadInitRequest;
+import com.socialmedia.model.MediaObject;
+import com.socialmedia.model.MediaUpload;
+import com.socialmedia.repository.MediaUploadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Resumable uploads: init -> PUT chunks at the current offset -> complete.
+// Each chunk is copied from the request stream to the staging file through one fixed buffer,
+// so memory per upload stays constant regardless of file or chunk size.
+@Service
+public class MediaUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaUploadService.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FILENAME_LENGTH = 255;
+    // Attachments are served back to other users, so only types a browser renders passively are stored;
+    // SVG is excluded because it can carry script
+    private static final Set<String> ALLOWED_TOP_LEVEL_TYPES = Set.of("image", "video", "audio");
+    private static final Set<String> ALLOWED_OTHER_TYPES = Set.of("application/pdf", "application/octet-stream");
+
+    @Autowired
+    private MediaUploadRepository mediaUploadRepository;
+
+    @Autowired
+    private MediaStorageService mediaStorageService;
+
+    @Value("${app.media.max-upload-bytes:104857600}")
+    private long maxUploadBytes;
+
+    @Value("${app.media.chunk-size:4194304}")
+    private long chunkSize;
+
+    @Value("${app.media.upload-expiry-hours:24}")
+    private long uploadExpiryHours;
+
+    // Uploads with a chunk currently being written; a second concurrent writer is rejected
+    private final Set<String> activeUploads = ConcurrentHashMap.newKeySet();
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public MediaUpload initUpload(String ownerEmail, UploadInitRequest request) throws Exception {
+        if (request.getTotalSize() == null || request.getTotalSize() <= 0) {
+            throw new Exception("totalSize is required");
+        }
+        if (request.getTotalSize() > maxUploadBytes) {
+            throw new Exception("File exceeds the maximum size of " + maxUploadBytes + " bytes");
+        }
+
+        MediaUpload upload = new MediaUpload(UUID.randomUUID().toString(), ownerEmail,
+                sanitizeFilename(request.getFilename()), validateContentType(request.getContentType()), request.getTotalSize());
+        Files.createFile(stagingFile(upload.getId()));
+        return mediaUploadRepository.save(upload);
+    }
+
+    // Returns the bare type/subtype; parameters are dropped and anything outside the allowlist is rejected
+    static String validateContentType(String contentType) throws Exception {
+        if (contentType == null || contentType.isBlank()) {
+            return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        }
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            throw new Exception("Invalid content type");
+        }
+        String bare = mediaType.getType() + "/" + mediaType.getSubtype();
+        boolean allowed = ALLOWED_TOP_LEVEL_TYPES.contains(mediaType.getType()) && !mediaType.getSubtype().contains("svg")
+                || ALLOWED_OTHER_TYPES.contains(bare);
+        if (mediaType.isWildcardType() || mediaType.isWildcardSubtype() || !allowed) {
+            throw new Exception("Unsupported content type: " + bare);
+        }
+        return bare;
+    }
+
+    // Keeps only the last path segment, without control characters
+    static String sanitizeFilename(String filename) {
+        if (filename == null) {
+            return null;
+        }
+        String name = filename.substring(Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\')) + 1)
+                .replaceAll("\\p{Cntrl}", "").trim();
+        if (name.length() > MAX_FILENAME_LENGTH) {
+            name = name.substring(name.length() - MAX_FILENAME_LENGTH);
+        }
+        return name.isEmpty() ? null : name;
+    }
+
+    public MediaUpload getUpload(String ownerEmail, String uploadId) throws Exception {
+        return mediaUploadRepository.findByIdAndOwnerEmail(uploadId, ownerEmail)
+                .orElseThrow(() -> new Exception("Upload not found"));
+    }
+
+    public MediaUpload writeChunk(String ownerEmail, String uploadId, long offset, InputStream body) throws Exception {
+        if (!activeUploads.add(uploadId)) {
+            throw new Exception("Another chunk is already being written for this upload");
+        }
+        try {
+            MediaUpload upload = getUpload(ownerEmail, uploadId);
+            if (!MediaUpload.STATUS_UPLOADING.equals(upload.getStatus())) {
+                throw new Exception("Upload is already complete");
+            }
+            if (offset != upload.getReceivedBytes()) {
+                throw new Exception("Offset mismatch, expected " + upload.getReceivedBytes());
+            }
+
+            long limit = Math.min(chunkSize, upload.getTotalSize() - offset);
+            long written = 0;
+            try (FileChannel out = FileChannel.open(stagingFile(uploadId), StandardOpenOption.WRITE);
+                 ReadableByteChannel in = Channels.newChannel(body)) {
+                // Drop any tail left behind by an interrupted chunk before appending
+                out.truncate(offset);
+                out.position(offset);
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    written += read;
+                    if (written > limit) {
+                        out.truncate(offset);
+                        throw new Exception("Chunk exceeds the allowed size of " + limit + " bytes");
+                    }
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                out.force(false);
+            }
+
+            upload.setReceivedBytes(offset + written);
+            upload.setUpdatedAt(LocalDateTime.now());
+            return mediaUploadRepository.save(upload);
+        } finally {
+            activeUploads.remove(uploadId);
+        }
+    }
+
+    public MediaUpload completeUpload(String ownerEmail, String uploadId) throws Exception {
+        if (!activeUploads.add(uploadId)) {
+            throw new Exception("A chunk is still being written for this upload");
+        }
+        try {
+            MediaUpload upload = getUpload(ownerEmail, uploadId);
+            if (MediaUpload.STATUS_COMPLETE.equals(upload.getStatus())) {
+                return upload;
+            }
+            if (upload.getReceivedBytes() != upload.getTotalSize()) {
+                throw new Exception("Upload incomplete: received " + upload.getReceivedBytes() + " of " + upload.getTotalSize() + " bytes");
+            }
+
+            MediaObject media = mediaStorageService.store(stagingFile(uploadId), upload.getContentType());
+            upload.setMediaId(media.getId());
+            upload.setStatus(MediaUpload.STATUS_COMPLETE);
+            upload.setUpdatedAt(LocalDateTime.now());
+            return mediaUploadRepository.save(upload);
+        } finally {
+            activeUploads.remove(uploadId);
+        }
+    }
+
+    // Resolves the upload a message refers to; only the uploader can attach it
+    public MediaUpload getCompletedUpload(String ownerEmail, String uploadId) throws Exception {
+        Optional<MediaUpload> upload = mediaUploadRepository.findByIdAndOwnerEmail(uploadId, ownerEmail);
+        if (upload.isEmpty() || !MediaUpload.STATUS_COMPLETE.equals(upload.get().getStatus())) {
+            throw new Exception("Upload not found or not complete");
+        }
+        return upload.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.media.upload-cleanup-interval-ms:3600000}")
+    public void expireAbandonedUploads() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(uploadExpiryHours);
+        for (MediaUpload upload : mediaUploadRepository.findByStatusAndUpdatedAtBefore(MediaUpload.STATUS_UPLOADING, cutoff)) {
+            if (activeUploads.contains(upload.getId())) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(stagingFile(upload.getId()));
+                mediaUploadRepository.delete(upload);
+            } catch (IOException e) {
+                logger.warn("Failed to remove abandoned upload {}: {}", upload.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private Path stagingFile(String uploadId) {
+        return mediaStorageService.getUploadDirectory().resolve(uploadId + ".part");
+    }
+}
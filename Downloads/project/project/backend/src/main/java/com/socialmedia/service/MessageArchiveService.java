@@ -0,0 +1,398 @@
+package com.socialmedia.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialmedia.dto.MessageView;
+import com.socialmedia.model.Message;
+import com.socialmedia.model.MessageArchiveBlock;
+import com.socialmedia.model.MessageTombstone;
+import com.socialmedia.repository.MessageArchiveBlockRepository;
+import com.socialmedia.repository.MessageRepository;
+import com.socialmedia.repository.MessageTombstoneRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Hot/cold split for messages. Old read (or soft-deleted) rows are moved out of the messages table
+// into append-only segment files: each conversation's share of an archiving batch becomes one gzip
+// block, located through a row in message_archive_blocks. Soft-deleted rows are simply purged.
+// Conversation pages and exports merge archived messages back in by id, so callers never see the seam.
+// Blocks are never rewritten; deleting an archived message records a tombstone that reads filter out.
+@Service
+public class MessageArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageArchiveService.class);
+    private static final int BLOCK_PAGE = 16;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageArchiveBlockRepository blockRepository;
+
+    @Autowired
+    private MessageTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.archive.dir:data/archive}")
+    private String archiveDir;
+
+    @Value("${app.archive.max-age-days:180}")
+    private int maxAgeDays;
+
+    @Value("${app.archive.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.archive.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.archive.segment-max-bytes:268435456}")
+    private long segmentMaxBytes;
+
+    @Value("${app.archive.block-cache-size:256}")
+    private int blockCacheSize;
+
+    private Path root;
+    private Path currentSegment;
+    // Blocks never change once written, so decoded copies can be cached freely
+    private Map<Long, List<Message>> blockCache;
+
+    public MessageArchiveService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(archiveDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        try (Stream<Path> segments = Files.list(root)) {
+            currentSegment = segments.filter(path -> path.getFileName().toString().startsWith("segment-"))
+                    .max(Comparator.naturalOrder())
+                    .orElse(root.resolve(segmentName(1)));
+        }
+        blockCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<Message>> eldest) {
+                return size() > blockCacheSize;
+            }
+        };
+    }
+
+    @Scheduled(fixedDelayString = "${app.archive.interval-ms:3600000}", initialDelayString = "${app.archive.initial-delay-ms:300000}")
+    public synchronized void archiveOldMessages() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(maxAgeDays);
+        int archived = 0;
+        int purged = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                List<Message> messages = messageRepository.findArchivable(cutoff, PageRequest.of(0, batchSize));
+                if (messages.isEmpty()) {
+                    break;
+                }
+                int[] counts = archiveBatch(messages);
+                archived += counts[0];
+                purged += counts[1];
+                if (messages.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Message archiving failed", e);
+        }
+        if (archived > 0 || purged > 0) {
+            logger.info("Archived {} messages and purged {} deleted messages older than {}", archived, purged, cutoff);
+        }
+    }
+
+    // Older-than-cursor page: merges hot rows (newest first) with archived ones and keeps the newest `limit`
+    public List<MessageView> mergeOlder(List<MessageView> hot, String email1, String email2, Long before, int limit) throws IOException {
+        String[] pair = pair(email1, email2);
+        long cursor = before == null ? Long.MAX_VALUE : before;
+        Set<Long> deleted = new HashSet<>(tombstoneRepository.findIdsByPair(pair[0], pair[1]));
+        List<MessageView> combined = new ArrayList<>(hot);
+        Comparator<MessageView> newestFirst = Comparator.comparing(MessageView::getId).reversed();
+
+        for (int page = 0; ; page++) {
+            List<MessageArchiveBlock> blocks = blockRepository.findBlocksBefore(pair[0], pair[1], cursor, PageRequest.of(page, BLOCK_PAGE));
+            for (MessageArchiveBlock block : blocks) {
+                // Everything left is older than what the page already holds
+                if (combined.size() >= limit && block.getLastMessageId() < combined.get(limit - 1).getId()) {
+                    return combined;
+                }
+                for (Message message : readBlock(block)) {
+                    if (message.getId() < cursor && !deleted.contains(message.getId())) {
+                        combined.add(MessageView.of(message));
+                    }
+                }
+                combined.sort(newestFirst);
+                if (combined.size() > limit) {
+                    combined = new ArrayList<>(combined.subList(0, limit));
+                }
+            }
+            if (blocks.size() < BLOCK_PAGE) {
+                return combined;
+            }
+        }
+    }
+
+    // Newer-than-cursor page: hot rows come oldest first, the result keeps the oldest `limit`
+    public List<MessageView> mergeNewer(List<MessageView> hot, String email1, String email2, Long after, int limit) throws IOException {
+        String[] pair = pair(email1, email2);
+        Set<Long> deleted = new HashSet<>(tombstoneRepository.findIdsByPair(pair[0], pair[1]));
+        List<MessageView> combined = new ArrayList<>(hot);
+        Comparator<MessageView> oldestFirst = Comparator.comparing(MessageView::getId);
+
+        for (int page = 0; ; page++) {
+            List<MessageArchiveBlock> blocks = blockRepository.findBlocksAfter(pair[0], pair[1], after, PageRequest.of(page, BLOCK_PAGE));
+            for (MessageArchiveBlock block : blocks) {
+                if (combined.size() >= limit && block.getFirstMessageId() > combined.get(limit - 1).getId()) {
+                    return combined;
+                }
+                for (Message message : readBlock(block)) {
+                    if (message.getId() > after && !deleted.contains(message.getId())) {
+                        combined.add(MessageView.of(message));
+                    }
+                }
+                combined.sort(oldestFirst);
+                if (combined.size() > limit) {
+                    combined = new ArrayList<>(combined.subList(0, limit));
+                }
+            }
+            if (blocks.size() < BLOCK_PAGE) {
+                return combined;
+            }
+        }
+    }
+
+    public Optional<Message> findMessage(Long id) throws IOException {
+        if (tombstoneRepository.existsById(id)) {
+            return Optional.empty();
+        }
+        for (MessageArchiveBlock block : blockRepository.findBlocksContaining(id)) {
+            for (Message message : readBlock(block)) {
+                if (message.getId().equals(id)) {
+                    return Optional.of(message);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Streams every archived message of a user, one block at a time, bypassing the block cache
+    public void forEachMessage(String email, Consumer<Message> consumer) throws IOException {
+        Set<Long> deleted = new HashSet<>(tombstoneRepository.findIdsByParticipant(email));
+        for (MessageArchiveBlock block : blockRepository.findByParticipant(email)) {
+            for (Message message : decodeBlock(block)) {
+                if (!deleted.contains(message.getId())) {
+                    consumer.accept(message);
+                }
+            }
+        }
+    }
+
+    // Streams every archived message that has not been deleted, one block at a time, bypassing the block cache
+    public void forEachArchivedMessage(Consumer<Message> consumer) throws IOException {
+        Set<Long> deleted = new HashSet<>(tombstoneRepository.findAllIds());
+        long cursor = 0;
+        while (true) {
+            List<MessageArchiveBlock> blocks = blockRepository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, BLOCK_PAGE));
+            for (MessageArchiveBlock block : blocks) {
+                for (Message message : decodeBlock(block)) {
+                    if (!deleted.contains(message.getId())) {
+                        consumer.accept(message);
+                    }
+                }
+                cursor = block.getId();
+            }
+            if (blocks.size() < BLOCK_PAGE) {
+                return;
+            }
+        }
+    }
+
+    // Must run inside the transaction that performs the delete
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void tombstone(Message message) {
+        String[] pair = pair(message.getSenderEmail(), message.getRecipientEmail());
+        tombstoneRepository.save(new MessageTombstone(message.getId(), pair[0], pair[1]));
+    }
+
+    private int[] archiveBatch(List<Message> messages) throws IOException {
+        List<Long> liveIds = new ArrayList<>(messages.size());
+        List<Long> purgedIds = new ArrayList<>();
+        Map<String, List<Message>> byConversation = new TreeMap<>();
+        for (Message message : messages) {
+            if (message.isDeleted()) {
+                purgedIds.add(message.getId());
+                continue;
+            }
+            liveIds.add(message.getId());
+            String[] pair = pair(message.getSenderEmail(), message.getRecipientEmail());
+            byConversation.computeIfAbsent(pair[0] + '\n' + pair[1], key -> new ArrayList<>()).add(message);
+        }
+
+        // Segment bytes are written first; if the database step fails they are simply never referenced
+        List<MessageArchiveBlock> blocks = new ArrayList<>(byConversation.size());
+        for (List<Message> conversation : byConversation.values()) {
+            blocks.add(appendBlock(conversation));
+        }
+        // The candidates were read without locks, so a sender may have deleted one since. Only rows still live
+        // are removed; any that were deleted in between stay behind, get tombstoned so their archived copy
+        // stays hidden, and are then purged too.
+        transactionTemplate.executeWithoutResult(status -> {
+            blockRepository.saveAll(blocks);
+            if (!purgedIds.isEmpty()) {
+                messageRepository.deleteAllByIdInBatch(purgedIds);
+            }
+            if (!liveIds.isEmpty() && messageRepository.deleteLiveByIds(liveIds) < liveIds.size()) {
+                List<Long> changed = new ArrayList<>();
+                for (Message message : messageRepository.findAllById(liveIds)) {
+                    tombstone(message);
+                    changed.add(message.getId());
+                }
+                messageRepository.deleteAllByIdInBatch(changed);
+            }
+        });
+        return new int[]{liveIds.size(), purgedIds.size()};
+    }
+
+    private MessageArchiveBlock appendBlock(List<Message> conversation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            for (Message message : conversation) {
+                writer.write(objectMapper.writeValueAsString(ArchivedMessage.of(message)));
+                writer.write('\n');
+            }
+        }
+        byte[] block = bytes.toByteArray();
+
+        if (Files.exists(currentSegment) && Files.size(currentSegment) + block.length > segmentMaxBytes) {
+            String name = currentSegment.getFileName().toString();
+            int number = Integer.parseInt(name.substring("segment-".length(), name.indexOf('.')));
+            currentSegment = root.resolve(segmentName(number + 1));
+        }
+        long offset;
+        try (FileChannel channel = FileChannel.open(currentSegment, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            offset = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(block);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            channel.force(true);
+        }
+
+        String[] pair = pair(conversation.get(0).getSenderEmail(), conversation.get(0).getRecipientEmail());
+        MessageArchiveBlock entry = new MessageArchiveBlock();
+        entry.setParticipantA(pair[0]);
+        entry.setParticipantB(pair[1]);
+        entry.setSegment(currentSegment.getFileName().toString());
+        entry.setOffset(offset);
+        entry.setLength(block.length);
+        entry.setFirstMessageId(conversation.get(0).getId());
+        entry.setLastMessageId(conversation.get(conversation.size() - 1).getId());
+        entry.setMessageCount(conversation.size());
+        return entry;
+    }
+
+    private List<Message> readBlock(MessageArchiveBlock block) throws IOException {
+        synchronized (blockCache) {
+            List<Message> cached = blockCache.get(block.getId());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        List<Message> messages = Collections.unmodifiableList(decodeBlock(block));
+        synchronized (blockCache) {
+            blockCache.put(block.getId(), messages);
+        }
+        return messages;
+    }
+
+    private List<Message> decodeBlock(MessageArchiveBlock block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(block.getLength());
+        try (FileChannel channel = FileChannel.open(root.resolve(block.getSegment()), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, block.getOffset() + buffer.position()) < 0) {
+                    throw new EOFException("Archive block " + block.getId() + " is truncated");
+                }
+            }
+        }
+
+        List<Message> messages = new ArrayList<>(block.getMessageCount());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(buffer.array())), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                messages.add(objectMapper.readValue(line, ArchivedMessage.class).toMessage());
+            }
+        }
+        return messages;
+    }
+
+    private static String[] pair(String email1, String email2) {
+        return email1.compareTo(email2) <= 0 ? new String[]{email1, email2} : new String[]{email2, email1};
+    }
+
+    private static String segmentName(int number) {
+        return String.format("segment-%06d.gz", number);
+    }
+
+    // Compact on-disk form; only live (non-deleted) messages are ever archived
+    record ArchivedMessage(Long id, String senderEmail, String recipientEmail, Long senderId, Long recipientId,
+                           String content, LocalDateTime timestamp, boolean read,
+                           Long mediaId, String mediaType, String mediaFilename) {
+
+        static ArchivedMessage of(Message message) {
+            return new ArchivedMessage(message.getId(), message.getSenderEmail(), message.getRecipientEmail(),
+                    message.getSenderId(), message.getRecipientId(), message.getContent(), message.getTimestamp(),
+                    message.isRead(), message.getMediaId(), message.getMediaType(), message.getMediaFilename());
+        }
+
+        Message toMessage() {
+            Message message = new Message(senderEmail, recipientEmail, content);
+            message.setId(id);
+            if (senderId != null && recipientId != null) {
+                message.setParticipants(senderId, recipientId);
+            }
+            message.setTimestamp(timestamp);
+            message.setRead(read);
+            message.setMediaId(mediaId);
+            message.setMediaType(mediaType);
+            message.setMediaFilename(mediaFilename);
+            return message;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.socialmedia.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.socialmedia.model.Message;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+
+// Writes a user's full message history as NDJSON straight to the response.
+// Rows are streamed from the server one at a time and detached right after being written, so the
+// persistence context never holds more than one message and heap use stays flat.
+// Archived history comes first, followed by the hot table. Attachments are referenced by their
+// mediaUrl rather than inlined.
+@Service
+public class MessageExportService {
+
+    private static final String EXPORT_QUERY = "SELECT m FROM Message m "
+            + "WHERE (m.senderEmail = :email OR m.recipientEmail = :email) AND m.deleted = false ORDER BY m.id";
+
+    @Autowired
+    private MessageArchiveService messageArchiveService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Integer.MIN_VALUE makes Connector/J stream rows one at a time instead of buffering the whole result,
+    // so memory does not grow with history size. Only the export statement streams; other drivers reject
+    // that value and need a positive fetch size instead.
+    @Value("${app.export.fetch-size:-2147483648}")
+    private int fetchSize;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public MessageExportService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    // Users export their own history; accounts with ROLE_ADMIN may export anyone's for compliance requests
+    public String resolveSubject(Authentication requester, String userEmail) throws Exception {
+        String requesterEmail = requester.getName();
+        if (userEmail == null || userEmail.isBlank() || userEmail.equals(requesterEmail)) {
+            return requesterEmail;
+        }
+        if (requester.getAuthorities().stream().noneMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()))) {
+            throw new Exception("Only an administrator can export another user's messages");
+        }
+        return userEmail;
+    }
+
+    public void export(String userEmail, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(SerializationFeature.CLOSE_CLOSEABLE);
+        try (SequenceWriter lines = writer.writeValues(new NonClosingOutputStream(out))) {
+            // Cold history first, read block by block from the archive
+            messageArchiveService.forEachMessage(userEmail, message -> write(lines, message));
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Message> messages = entityManager.createQuery(EXPORT_QUERY, Message.class)
+                        .setParameter("email", userEmail)
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                        .getResultStream()) {
+                    messages.forEach(message -> {
+                        write(lines, message);
+                        entityManager.detach(message);
+                    });
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.write('\n');
+        out.flush();
+    }
+
+    private static void write(SequenceWriter lines, Message message) {
+        try {
+            lines.write(message);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The response stream belongs to the container; closing the writer must only flush it
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.socialmedia.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Assigns message ids for write-behind batches. A batch reserves its ids inside its own insert transaction,
+// and the allocation row stays locked until that transaction commits, so batches from every instance
+// commit in id order and "after" cursors never skip a late commit. A reservation never starts below
+// MAX(messages.id) + 1, so ids stay unique even when AUTO_INCREMENT inserts happened while write-behind
+// was switched off.
+@Service
+public class MessageIdAllocator {
+
+    private static final String NAME = "messages";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Returns the first of `count` consecutive ids
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long reserve(int count) {
+        // Upsert so the row always exists to lock; ON DUPLICATE KEY UPDATE locks it exclusively either way
+        jdbcTemplate.update("INSERT INTO id_allocations (name, next_value) VALUES (?, 0) "
+                + "ON DUPLICATE KEY UPDATE next_value = next_value", NAME);
+        long next = jdbcTemplate.queryForObject("SELECT next_value FROM id_allocations WHERE name = ? FOR UPDATE", Long.class, NAME);
+        long start = Math.max(next, highestUsedId() + 1);
+        jdbcTemplate.update("UPDATE id_allocations SET next_value = ? WHERE name = ?", start + count, NAME);
+        return start;
+    }
+
+    // Archived messages have left the hot table, so their ids are checked too
+    private long highestUsedId() {
+        Long hot = jdbcTemplate.queryForObject("SELECT MAX(id) FROM messages", Long.class);
+        Long archived = jdbcTemplate.queryForObject("SELECT MAX(last_message_id) FROM message_archive_blocks", Long.class);
+        return Math.max(hot == null ? 0 : hot, archived == null ? 0 : archived);
+    }
+}
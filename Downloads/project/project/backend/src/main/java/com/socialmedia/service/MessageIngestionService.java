@@ -0,0 +1,214 @@
+package com.socialmedia.service;
+
+import com.socialmedia.event.MessageSentEvent;
+import com.socialmedia.model.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Write-behind path for sendMessage. Requests hand a validated message to a bounded queue; one writer
+// thread collects up to batch-size messages or waits at most linger-ms, reserves their ids, inserts them
+// with a single JDBC batch and updates the conversation summaries in the same transaction, so a whole
+// batch costs one commit. Ids are only assigned inside that transaction, which keeps commit order equal
+// to id order for keyset polling and stream resume. Each request's future completes only after
+// that commit, so the client's ack still means the message is durable.
+@Service
+public class MessageIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageIngestionService.class);
+
+    private static final String INSERT_SQL = "INSERT INTO messages (id, sender_email, recipient_email, sender_id, recipient_id, "
+            + "conversation_id, content, timestamp, is_read, deleted, media_id, media_type, media_filename) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, false, false, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MessageIdAllocator messageIdAllocator;
+
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.messages.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.messages.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.messages.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.messages.write-behind.linger-ms:5}")
+    private long lingerMs;
+
+    @Value("${app.messages.write-behind.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    private final TransactionTemplate transactionTemplate;
+    private BlockingQueue<Pending> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    public MessageIngestionService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::runWriter, "message-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Stops accepting, then lets the writer drain what is already queued
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<Message> submit(Message message) throws ServiceBusyException {
+        Pending pending = new Pending(message);
+        if (!running || !queue.offer(pending)) {
+            throw new ServiceBusyException("Message queue is full, please retry shortly", retryAfterSeconds);
+        }
+        return pending.future;
+    }
+
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Linger briefly so concurrent senders share the commit
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        // Anything left after an interrupt is failed rather than silently dropped
+        Pending leftover;
+        while (queue != null && (leftover = queue.poll()) != null) {
+            leftover.future.completeExceptionally(new IllegalStateException("Server is shutting down"));
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                insert(batch);
+                break;
+            } catch (PessimisticLockingFailureException e) {
+                // The rollback also released the batch's ids, so the re-run simply reserves them again
+                if (attempt >= MessageService.SEND_ATTEMPTS) {
+                    fail(batch, e);
+                    return;
+                }
+            } catch (Exception e) {
+                fail(batch, e);
+                return;
+            }
+        }
+        batch.forEach(pending -> pending.future.complete(pending.message));
+    }
+
+    private void fail(List<Pending> batch, Exception e) {
+        logger.error("Failed to write batch of {} messages", batch.size(), e);
+        batch.forEach(pending -> pending.future.completeExceptionally(e));
+    }
+
+    private void insert(List<Pending> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            long firstId = messageIdAllocator.reserve(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).message.setId(firstId + i);
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, pending) -> {
+                Message message = pending.message;
+                ps.setLong(1, message.getId());
+                ps.setString(2, message.getSenderEmail());
+                ps.setString(3, message.getRecipientEmail());
+                ps.setLong(4, message.getSenderId());
+                ps.setLong(5, message.getRecipientId());
+                ps.setLong(6, message.getConversationId());
+                ps.setString(7, message.getContent());
+                ps.setTimestamp(8, Timestamp.valueOf(message.getTimestamp()));
+                if (message.getMediaId() != null) {
+                    ps.setLong(9, message.getMediaId());
+                } else {
+                    ps.setNull(9, Types.BIGINT);
+                }
+                ps.setString(10, message.getMediaType());
+                ps.setString(11, message.getMediaFilename());
+            });
+            for (Pending pending : batch) {
+                conversationSummaryService.recordSent(pending.message);
+                // Delivered to listeners after commit, like the synchronous path
+                eventPublisher.publishEvent(new MessageSentEvent(pending.message));
+            }
+        });
+    }
+
+    private static final class Pending {
+        final Message message;
+        final CompletableFuture<Message> future = new CompletableFuture<>();
+
+        Pending(Message message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.socialmedia.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+
+// Fills sender_id, recipient_id and conversation_id on messages written before those columns existed.
+// Works through the table in primary-key ranges so each UPDATE only locks a slice of rows.
+// Conversation reads only look at conversation_id, so this runs during context startup, after Hibernate
+// has added the columns but before the web server takes traffic, and a failure aborts the startup.
+@Component
+@DependsOn("entityManagerFactory")
+public class MessageParticipantMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageParticipantMigration.class);
+    private static final long RANGE_SIZE = 10000;
+    private static final String LEGACY_INDEX = "idx_messages_sender_recipient_id";
+
+    // Must match Message.conversationIdFor
+    private static final String UPDATE_RANGE = "UPDATE messages m "
+            + "JOIN users s ON s.email = m.sender_email "
+            + "JOIN users r ON r.email = m.recipient_email "
+            + "SET m.sender_id = s.id, m.recipient_id = r.id, "
+            + "m.conversation_id = (LEAST(s.id, r.id) << 32) | GREATEST(s.id, r.id) "
+            + "WHERE m.conversation_id IS NULL AND m.id >= ? AND m.id < ?";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void migrate() throws Exception {
+        dropLegacyIndex();
+
+        Long first = jdbcTemplate.queryForObject("SELECT MIN(id) FROM messages WHERE conversation_id IS NULL", Long.class);
+        if (first == null) {
+            return;
+        }
+        Long last = jdbcTemplate.queryForObject("SELECT MAX(id) FROM messages WHERE conversation_id IS NULL", Long.class);
+
+        int migrated = 0;
+        for (long from = first; from <= last; from += RANGE_SIZE) {
+            migrated += jdbcTemplate.update(UPDATE_RANGE, from, from + RANGE_SIZE);
+        }
+        logger.info("Filled participant ids on {} messages", migrated);
+
+        // Only rows whose sender or recipient account no longer exists are left; no conversation can be opened
+        // with a missing user, so they are reported rather than blocking every future start
+        Integer orphaned = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM messages WHERE conversation_id IS NULL", Integer.class);
+        if (orphaned != null && orphaned > 0) {
+            logger.error("{} messages reference users that no longer exist and were left without participant ids", orphaned);
+        }
+    }
+
+    // The old (sender_email, recipient_email, id) index no longer serves any query but still costs every insert
+    private void dropLegacyIndex() throws Exception {
+        boolean exists = JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> {
+            try (ResultSet indexes = metaData.getIndexInfo(metaData.getConnection().getCatalog(), null, "messages", false, false)) {
+                while (indexes.next()) {
+                    if (LEGACY_INDEX.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        });
+        if (exists) {
+            jdbcTemplate.execute("DROP INDEX " + LEGACY_INDEX + " ON messages");
+            logger.info("Dropped legacy index {}", LEGACY_INDEX);
+        }
+    }
+}
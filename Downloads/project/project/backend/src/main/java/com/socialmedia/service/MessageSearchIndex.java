@@ -0,0 +1,552 @@
+package com.socialmedia.service;
+
+import com.socialmedia.event.MessageDeletedEvent;
+import com.socialmedia.event.MessageSentEvent;
+import com.socialmedia.model.Message;
+import com.socialmedia.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Full-text index over message content, partitioned by user: each message is posted under its sender and
+// its recipient, so a search only ever reads the caller's own partition. Postings are ascending message ids,
+// delta + varint encoded; ids only grow, so nearly every insert is an append and newest-first ranking is a
+// walk back from the end of the intersection.
+// Changes since the last flush are also collected in a delta that is written out as an immutable segment
+// file. On startup the segments are loaded and only messages newer than the last checkpoint are read back
+// from the database. Deletes are tombstones, filtered at query time and dropped when segments are compacted.
+@Service
+public class MessageSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchIndex.class);
+    private static final int SEGMENT_MAGIC = 0x4d534958;
+    private static final int SEGMENT_FORMAT = 1;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 64;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private MessageArchiveService messageArchiveService;
+
+    @Value("${app.search.messages.dir:data/search}")
+    private String indexDir;
+
+    @Value("${app.search.messages.max-segments:8}")
+    private int maxSegments;
+
+    @Value("${app.search.messages.catch-up-batch-size:1000}")
+    private int catchUpBatchSize;
+
+    // Concurrent AUTO_INCREMENT sends can commit slightly out of id order, so catch-up re-reads a little before the checkpoint
+    @Value("${app.search.messages.catch-up-overlap:1000}")
+    private long catchUpOverlap;
+
+    private final Map<Long, Map<String, Postings>> partitions = new HashMap<>();
+    private final Set<Long> deleted = new HashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Delta delta = new Delta();
+
+    private Path root;
+    private int lastSegmentNumber;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(indexDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        List<Path> segments = List.of();
+        long checkpoint = 0;
+        lock.writeLock().lock();
+        try {
+            segments = listSegments();
+            for (Path segment : segments) {
+                checkpoint = Math.max(checkpoint, readSegment(segment, partitions, deleted));
+            }
+        } catch (IOException e) {
+            // Segments are only a cache of the messages table; start over and let the next flush rewrite them
+            logger.error("Unreadable message search segments in {}, rebuilding from the database", root, e);
+            partitions.clear();
+            deleted.clear();
+            segments.forEach(this::deleteQuietly);
+            checkpoint = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long from = Math.max(0, checkpoint - catchUpOverlap);
+        int indexed = catchUp(from);
+        if (checkpoint == 0) {
+            indexed += indexArchive();
+        }
+        logger.info("Message search index loaded {} segments and indexed {} messages after id {}", segments.size(), indexed, from);
+    }
+
+    // Discards all segments and re-indexes every live message, hot and archived
+    public synchronized void rebuild() throws IOException {
+        lock.writeLock().lock();
+        try {
+            partitions.clear();
+            deleted.clear();
+            delta = new Delta();
+            listSegments().forEach(this::deleteQuietly);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        int indexed = catchUp(0);
+        indexed += indexArchive();
+        logger.info("Message search index rebuilt with {} messages", indexed);
+    }
+
+    // Walked after the hot table: messages only move into the archive, so one archived mid-rebuild is still seen here
+    private int indexArchive() {
+        int[] indexed = {0};
+        try {
+            messageArchiveService.forEachArchivedMessage(message -> {
+                index(message);
+                indexed[0]++;
+            });
+        } catch (IOException e) {
+            logger.error("Could not read the message archive; archived messages are missing from search until the next rebuild", e);
+        }
+        return indexed[0];
+    }
+
+    private int catchUp(long after) {
+        long cursor = after;
+        int indexed = 0;
+        while (true) {
+            List<Message> batch = messageRepository.findIndexableAfter(cursor, PageRequest.of(0, catchUpBatchSize));
+            batch.forEach(this::index);
+            indexed += batch.size();
+            if (batch.size() < catchUpBatchSize) {
+                return indexed;
+            }
+            cursor = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onMessageSent(MessageSentEvent event) {
+        index(event.getMessage());
+    }
+
+    @TransactionalEventListener
+    public void onMessageDeleted(MessageDeletedEvent event) {
+        remove(event.getMessage().getId());
+    }
+
+    public void index(Message message) {
+        Set<String> terms = tokenize(message.getContent());
+        if (terms.isEmpty() || message.getId() == null) {
+            return;
+        }
+        // Rows from before the participant-id migration only carry emails
+        Long senderId = message.getSenderId() != null
+                ? message.getSenderId() : userCache.getIdByEmail(message.getSenderEmail()).orElse(null);
+        Long recipientId = message.getRecipientId() != null
+                ? message.getRecipientId() : userCache.getIdByEmail(message.getRecipientEmail()).orElse(null);
+
+        Set<Long> owners = new HashSet<>();
+        if (senderId != null) {
+            owners.add(senderId);
+        }
+        if (recipientId != null) {
+            owners.add(recipientId);
+        }
+        long id = message.getId();
+        lock.writeLock().lock();
+        try {
+            for (Long owner : owners) {
+                Map<String, Postings> partition = partitions.computeIfAbsent(owner, k -> new HashMap<>());
+                Map<String, Postings> pending = delta.partitions.computeIfAbsent(owner, k -> new HashMap<>());
+                for (String term : terms) {
+                    partition.computeIfAbsent(term, k -> new Postings()).add(id);
+                    pending.computeIfAbsent(term, k -> new Postings()).add(id);
+                }
+            }
+            delta.checkpoint = Math.max(delta.checkpoint, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long messageId) {
+        lock.writeLock().lock();
+        try {
+            deleted.add(messageId);
+            delta.deleted.add(messageId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ids of the user's messages containing every query term, newest first, below `before` when given
+    public List<Long> search(Long userId, String query, Long before, int limit) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Long> ids = new ArrayList<>(limit);
+        lock.readLock().lock();
+        try {
+            Map<String, Postings> partition = partitions.get(userId);
+            if (partition == null) {
+                return Collections.emptyList();
+            }
+            // Intersect rarest first, stopping early once nothing is left
+            List<Postings> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Postings postings = partition.get(term);
+                if (postings == null) {
+                    return Collections.emptyList();
+                }
+                lists.add(postings);
+            }
+            lists.sort(Comparator.comparingInt(postings -> postings.count));
+            long[] matches = lists.get(0).decode();
+            for (int i = 1; i < lists.size() && matches.length > 0; i++) {
+                matches = intersect(matches, lists.get(i).decode());
+            }
+
+            int end = matches.length;
+            if (before != null) {
+                int pos = Arrays.binarySearch(matches, before);
+                end = pos >= 0 ? pos : -pos - 1;
+            }
+            for (int i = end - 1; i >= 0 && ids.size() < limit; i--) {
+                if (!deleted.contains(matches[i])) {
+                    ids.add(matches[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ids;
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.messages.flush-interval-ms:30000}", initialDelayString = "${app.search.messages.flush-interval-ms:30000}")
+    public synchronized void flush() {
+        Delta flushing;
+        lock.writeLock().lock();
+        try {
+            if (delta.partitions.isEmpty() && delta.deleted.isEmpty()) {
+                return;
+            }
+            flushing = delta;
+            delta = new Delta();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            writeSegment(root.resolve(segmentName(lastSegmentNumber + 1)), flushing.partitions, flushing.deleted, flushing.checkpoint);
+            lastSegmentNumber++;
+        } catch (IOException e) {
+            logger.error("Failed to write message search segment, will retry on the next flush", e);
+            lock.writeLock().lock();
+            try {
+                merge(delta.partitions, flushing.partitions);
+                delta.deleted.addAll(flushing.deleted);
+                delta.checkpoint = Math.max(delta.checkpoint, flushing.checkpoint);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        try {
+            compactIfNeeded();
+        } catch (IOException e) {
+            logger.error("Message search segment compaction failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Merges every segment into one, dropping tombstoned ids for good: their rows are soft-deleted and never
+    // re-indexed. A crash before the old files are removed only leaves duplicates, which loading unions away.
+    private void compactIfNeeded() throws IOException {
+        List<Path> segments = listSegments();
+        if (segments.size() <= maxSegments) {
+            return;
+        }
+        Map<Long, Map<String, Postings>> merged = new HashMap<>();
+        Set<Long> tombstones = new HashSet<>();
+        long checkpoint = 0;
+        for (Path segment : segments) {
+            checkpoint = Math.max(checkpoint, readSegment(segment, merged, tombstones));
+        }
+        for (Map<String, Postings> partition : merged.values()) {
+            partition.values().forEach(postings -> postings.removeAll(tombstones));
+            partition.values().removeIf(postings -> postings.count == 0);
+        }
+        merged.values().removeIf(Map::isEmpty);
+
+        writeSegment(root.resolve(segmentName(lastSegmentNumber + 1)), merged, Set.of(), checkpoint);
+        lastSegmentNumber++;
+        segments.forEach(this::deleteQuietly);
+        logger.info("Compacted {} message search segments, dropping {} deleted messages", segments.size(), tombstones.size());
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            List<Path> segments = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith("segment-") && name.endsWith(".idx");
+            }).sorted().toList();
+            for (Path segment : segments) {
+                String name = segment.getFileName().toString();
+                lastSegmentNumber = Math.max(lastSegmentNumber, Integer.parseInt(name.substring(8, name.length() - 4)));
+            }
+            return segments;
+        }
+    }
+
+    // Layout: magic, format, checkpoint, tombstones, then per user the terms with their encoded postings.
+    // Written to a temporary file and moved into place, so a segment is either complete or absent.
+    private void writeSegment(Path segment, Map<Long, Map<String, Postings>> source, Set<Long> tombstones,
+                              long checkpoint) throws IOException {
+        Path staged = segment.resolveSibling(segment.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(staged)))) {
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeInt(SEGMENT_FORMAT);
+            out.writeLong(checkpoint);
+            out.writeInt(tombstones.size());
+            for (long id : tombstones) {
+                out.writeLong(id);
+            }
+            out.writeInt(source.size());
+            for (Map.Entry<Long, Map<String, Postings>> partition : source.entrySet()) {
+                out.writeLong(partition.getKey());
+                out.writeInt(partition.getValue().size());
+                for (Map.Entry<String, Postings> term : partition.getValue().entrySet()) {
+                    Postings postings = term.getValue();
+                    out.writeUTF(term.getKey());
+                    out.writeInt(postings.count);
+                    out.writeLong(postings.last);
+                    out.writeInt(postings.length);
+                    out.write(postings.bytes, 0, postings.length);
+                }
+            }
+        }
+        Files.move(staged, segment, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Unions the segment into `target` and `tombstones`; returns the segment's checkpoint
+    private static long readSegment(Path segment, Map<Long, Map<String, Postings>> target, Set<Long> tombstones) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            if (in.readInt() != SEGMENT_MAGIC || in.readInt() != SEGMENT_FORMAT) {
+                throw new IOException(segment + " is not a message search segment");
+            }
+            long checkpoint = in.readLong();
+            for (int i = in.readInt(); i > 0; i--) {
+                tombstones.add(in.readLong());
+            }
+            Map<Long, Map<String, Postings>> loaded = new HashMap<>();
+            for (int p = in.readInt(); p > 0; p--) {
+                Map<String, Postings> partition = loaded.computeIfAbsent(in.readLong(), k -> new HashMap<>());
+                for (int t = in.readInt(); t > 0; t--) {
+                    String term = in.readUTF();
+                    int count = in.readInt();
+                    long last = in.readLong();
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    partition.put(term, new Postings(bytes, count, last));
+                }
+            }
+            merge(target, loaded);
+            return checkpoint;
+        }
+    }
+
+    private static void merge(Map<Long, Map<String, Postings>> target, Map<Long, Map<String, Postings>> source) {
+        source.forEach((userId, terms) -> {
+            Map<String, Postings> partition = target.computeIfAbsent(userId, k -> new HashMap<>());
+            terms.forEach((term, postings) -> partition.merge(term, postings, Postings::addAll));
+        });
+    }
+
+    private void deleteQuietly(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            logger.warn("Failed to delete {}: {}", segment, e.getMessage());
+        }
+    }
+
+    private static String segmentName(int number) {
+        return String.format("segment-%06d.idx", number);
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] out = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // Lower-cased runs of letters and digits; single characters are too common to be worth a posting list
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                if (i - start >= MIN_TERM_LENGTH) {
+                    terms.add(lower.substring(start, Math.min(i, start + MAX_TERM_LENGTH)));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    // Changes since the last flush; becomes the next segment
+    private static final class Delta {
+        final Map<Long, Map<String, Postings>> partitions = new HashMap<>();
+        final Set<Long> deleted = new HashSet<>();
+        long checkpoint;
+    }
+
+    // Ascending ids stored as varint gaps from the previous id
+    private static final class Postings {
+        byte[] bytes;
+        int length;
+        int count;
+        long last;
+
+        Postings() {
+            this.bytes = new byte[8];
+        }
+
+        Postings(byte[] bytes, int count, long last) {
+            this.bytes = bytes;
+            this.length = bytes.length;
+            this.count = count;
+            this.last = last;
+        }
+
+        void add(long id) {
+            if (count == 0 || id > last) {
+                append(id - last);
+                last = id;
+                count++;
+                return;
+            }
+            // A late commit can deliver an older id: re-encode with it in place
+            long[] ids = decode();
+            int pos = Arrays.binarySearch(ids, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            long[] updated = new long[ids.length + 1];
+            System.arraycopy(ids, 0, updated, 0, pos);
+            updated[pos] = id;
+            System.arraycopy(ids, pos, updated, pos + 1, ids.length - pos);
+            reset(updated);
+        }
+
+        Postings addAll(Postings other) {
+            for (long id : other.decode()) {
+                add(id);
+            }
+            return this;
+        }
+
+        void removeAll(Set<Long> ids) {
+            if (ids.isEmpty()) {
+                return;
+            }
+            reset(Arrays.stream(decode()).filter(id -> !ids.contains(id)).toArray());
+        }
+
+        long[] decode() {
+            long[] ids = new long[count];
+            long value = 0;
+            int pos = 0;
+            for (int i = 0; i < count; i++) {
+                long gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[pos++];
+                    gap |= (long) (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+                value += gap;
+                ids[i] = value;
+            }
+            return ids;
+        }
+
+        private void reset(long[] ids) {
+            length = 0;
+            count = 0;
+            last = 0;
+            for (long id : ids) {
+                append(id - last);
+                last = id;
+                count++;
+            }
+        }
+
+        private void append(long gap) {
+            if (length + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 10));
+            }
+            while ((gap & ~0x7fL) != 0) {
+                bytes[length++] = (byte) ((gap & 0x7f) | 0x80);
+                gap >>>= 7;
+            }
+            bytes[length++] = (byte) gap;
+        }
+    }
+}
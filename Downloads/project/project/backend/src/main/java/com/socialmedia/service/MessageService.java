@@ -1,108 +1,242 @@
 package com.socialmedia.service;
 
 import com.socialmedia.dto.MessageRequest;
+import com.socialmedia.dto.MessageView;
+import com.socialmedia.dto.UserSnapshot;
+import com.socialmedia.dto.UserSummary;
+import com.socialmedia.event.MessageDeletedEvent;
+import com.socialmedia.event.MessageReadEvent;
+import com.socialmedia.event.MessageSentEvent;
+import com.socialmedia.model.ConversationSummary;
+import com.socialmedia.model.MediaUpload;
 import com.socialmedia.model.Message;
-import com.socialmedia.model.User;
 import com.socialmedia.repository.MessageRepository;
-import com.socialmedia.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @Service
+@Timed("app.service")
 public class MessageService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int DEFAULT_INBOX_SIZE = 30;
+    public static final int MAX_INBOX_SIZE = 100;
+    static final int SEND_ATTEMPTS = 3;
+
     @Autowired
     private MessageRepository messageRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private UserCache userCache;
+
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+
+    @Autowired
+    private MediaUploadService mediaUploadService;
+
+    @Autowired
+    private MessageArchiveService messageArchiveService;
+
+    @Autowired
+    private MessageIngestionService messageIngestionService;
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public MessageService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // A deadlock rolls the whole transaction back, so the send is re-run from a freshly built message
     public Message sendMessage(String senderEmail, MessageRequest messageRequest) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            Message message = buildMessage(senderEmail, messageRequest);
+            try {
+                return transactionTemplate.execute(status -> {
+                    Message savedMessage = messageRepository.save(message);
+                    conversationSummaryService.recordSent(savedMessage);
+                    eventPublisher.publishEvent(new MessageSentEvent(savedMessage));
+                    return savedMessage;
+                });
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= SEND_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return messageIngestionService.isEnabled();
+    }
+
+    // Write-behind variant of sendMessage: the message is validated here, then queued; the writer assigns its id
+    // and the future completes with it once the batch containing the message has committed
+    public CompletableFuture<Message> submitMessage(String senderEmail, MessageRequest messageRequest) throws Exception {
+        Message message = buildMessage(senderEmail, messageRequest);
+        return messageIngestionService.submit(message);
+    }
+
+    private Message buildMessage(String senderEmail, MessageRequest messageRequest) throws Exception {
         // Validate sender exists
-        Optional<User> senderOptional = userRepository.findByEmail(senderEmail);
-        if (senderOptional.isEmpty()) {
+        Optional<Long> senderId = userCache.getIdByEmail(senderEmail);
+        if (senderId.isEmpty()) {
             throw new Exception("Sender not found");
         }
 
         // Validate recipient exists
-        Optional<User> recipientOptional = userRepository.findByEmail(messageRequest.getRecipientEmail());
-        if (recipientOptional.isEmpty()) {
+        Optional<Long> recipientId = userCache.getIdByEmail(messageRequest.getRecipientEmail());
+        if (recipientId.isEmpty()) {
             throw new Exception("Recipient not found");
         }
 
         Message message = new Message(senderEmail, messageRequest.getRecipientEmail(), messageRequest.getContent());
+        message.setParticipants(senderId.get(), recipientId.get());
         
-        // Handle media if present
-        if (messageRequest.getMediaData() != null && !messageRequest.getMediaData().isEmpty()) {
-            message.setMediaData(messageRequest.getMediaData());
-            message.setMediaType(messageRequest.getMediaType());
-            message.setMediaFilename(messageRequest.getMediaFilename());
+        // Attach media from a completed upload
+        if (messageRequest.getUploadId() != null && !messageRequest.getUploadId().isEmpty()) {
+            MediaUpload upload = mediaUploadService.getCompletedUpload(senderEmail, messageRequest.getUploadId());
+            message.setMediaId(upload.getMediaId());
+            message.setMediaType(upload.getContentType());
+            message.setMediaFilename(upload.getFilename());
         }
-        
-        return messageRepository.save(message);
+        return message;
     }
 
-    public List<Message> getConversation(String userEmail1, String userEmail2) {
-        List<Message> messages = messageRepository.findConversationBetweenUsers(userEmail1, userEmail2);
-        return messages.stream()
-                .sorted(Comparator.comparing(Message::getTimestamp))
-                .collect(Collectors.toList());
+    // Weak validators for the conversation and inbox endpoints, cheap enough to check before building
+    // the page. They are read before the payload, so a write in between only costs one extra 200.
+    public String getConversationETag(String userEmail, String partnerEmail) {
+        return "W/\"c-" + conversationSummaryService.getVersion(userEmail, partnerEmail) + "\"";
     }
 
-    public Map<String, Object> getAllConversations(String userEmail) {
-        List<Message> allMessages = messageRepository.findAllUserMessages(userEmail);
-        
-        // Group messages by conversation partner
-        Map<String, List<Message>> conversationMap = new HashMap<>();
-        
-        for (Message message : allMessages) {
-            String partnerEmail = message.getSenderEmail().equals(userEmail) ? 
-                                 message.getRecipientEmail() : message.getSenderEmail();
-            
-            conversationMap.computeIfAbsent(partnerEmail, k -> new ArrayList<>()).add(message);
+    public String getInboxETag(String userEmail, Integer page, Integer size) {
+        List<ConversationSummary> summaries = conversationSummaryService.getInbox(userEmail, inboxPage(page), inboxSize(size));
+        Set<String> partnerEmails = new HashSet<>();
+        summaries.forEach(summary -> partnerEmails.add(summary.getPartnerEmail()));
+        Map<String, UserSnapshot> partners = partnerEmails.isEmpty() ? Map.of() : userCache.getByEmails(partnerEmails);
+
+        StringBuilder state = new StringBuilder();
+        for (ConversationSummary summary : summaries) {
+            UserSnapshot partner = partners.get(summary.getPartnerEmail());
+            state.append(summary.getId()).append(':').append(summary.getVersion()).append(':')
+                    .append(partner == null ? null : partner.getLastModified()).append(';');
+        }
+        return "W/\"i-" + DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    // Keyset-paginated conversation: latest page by default, "before" pages back through history,
+    // "after" fetches newer messages. One extra row is read to detect whether more exist.
+    public Map<String, Object> getConversation(String userEmail1, String userEmail2,
+                                               Long before, Long after, Integer size) throws Exception {
+        if (before != null && after != null) {
+            throw new Exception("Only one of 'before' or 'after' can be specified");
+        }
+
+        Long userId1 = userCache.getIdByEmail(userEmail1).orElseThrow(() -> new Exception("User not found"));
+        Long userId2 = userCache.getIdByEmail(userEmail2).orElseThrow(() -> new Exception("User not found"));
+        long conversationId = Message.conversationIdFor(userId1, userId2);
+
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<MessageView> messages;
+        if (after != null) {
+            messages = messageRepository.findInConversationAfter(conversationId, after, limit);
+            messages = messageArchiveService.mergeNewer(messages, userEmail1, userEmail2, after, pageSize + 1);
+        } else if (before != null) {
+            messages = messageRepository.findInConversationBefore(conversationId, before, limit);
+            messages = messageArchiveService.mergeOlder(messages, userEmail1, userEmail2, before, pageSize + 1);
+        } else {
+            messages = messageRepository.findLatestInConversation(conversationId, limit);
+            messages = messageArchiveService.mergeOlder(messages, userEmail1, userEmail2, null, pageSize + 1);
+        }
+
+        boolean hasMore = messages.size() > pageSize;
+        if (hasMore) {
+            messages = new ArrayList<>(messages.subList(0, pageSize));
+        }
+        // Backward pages come out newest-first; the client always gets oldest-first
+        if (after == null) {
+            Collections.reverse(messages);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("messages", messages);
+        result.put("hasMore", hasMore);
+        result.put("before", messages.isEmpty() ? before : messages.get(0).getId());
+        result.put("after", messages.isEmpty() ? after : messages.get(messages.size() - 1).getId());
+        return result;
+    }
+
+    // Inbox is served from the per-user summary table: one indexed page plus one batched partner lookup
+    public Map<String, Object> getAllConversations(String userEmail, Integer page, Integer size) {
+        int pageNumber = inboxPage(page);
+        int pageSize = inboxSize(size);
+
+        List<ConversationSummary> summaries = conversationSummaryService.getInbox(userEmail, pageNumber, pageSize);
+
+        Set<String> partnerEmails = new HashSet<>();
+        summaries.forEach(summary -> partnerEmails.add(summary.getPartnerEmail()));
+        Map<String, UserSummary> partners = new HashMap<>();
+        if (!partnerEmails.isEmpty()) {
+            userCache.getByEmails(partnerEmails).forEach((email, snapshot) -> partners.put(email, snapshot.toSummary()));
         }
 
-        // Create conversation summaries
         List<Map<String, Object>> conversations = new ArrayList<>();
-        
-        for (Map.Entry<String, List<Message>> entry : conversationMap.entrySet()) {
-            String partnerEmail = entry.getKey();
-            List<Message> messages = entry.getValue();
-            
-            // Sort messages by timestamp
-            messages.sort(Comparator.comparing(Message::getTimestamp).reversed());
-            
-            Optional<User> partnerOptional = userRepository.findByEmail(partnerEmail);
-            if (partnerOptional.isPresent()) {
-                User partner = partnerOptional.get();
-                partner.setPassword(null); // Remove password
-                
-                Map<String, Object> conversation = new HashMap<>();
-                conversation.put("partner", partner);
-                conversation.put("lastMessage", messages.get(0));
-                conversation.put("unreadCount", messages.stream()
-                    .mapToInt(m -> (!m.isRead() && m.getRecipientEmail().equals(userEmail)) ? 1 : 0)
-                    .sum());
-                
-                conversations.add(conversation);
+        for (ConversationSummary summary : summaries) {
+            UserSummary partner = partners.get(summary.getPartnerEmail());
+            if (partner == null) {
+                continue;
             }
-        }
 
-        // Sort conversations by last message timestamp
-        conversations.sort((a, b) -> {
-            Message lastA = (Message) a.get("lastMessage");
-            Message lastB = (Message) b.get("lastMessage");
-            return lastB.getTimestamp().compareTo(lastA.getTimestamp());
-        });
+            Map<String, Object> lastMessage = new HashMap<>();
+            lastMessage.put("id", summary.getLastMessageId());
+            lastMessage.put("senderEmail", summary.getLastMessageSenderEmail());
+            lastMessage.put("content", summary.getLastMessagePreview());
+            lastMessage.put("timestamp", summary.getLastMessageTimestamp());
+
+            Map<String, Object> conversation = new HashMap<>();
+            conversation.put("partner", partner);
+            conversation.put("lastMessage", lastMessage);
+            conversation.put("unreadCount", summary.getUnreadCount());
+            conversations.add(conversation);
+        }
 
         Map<String, Object> result = new HashMap<>();
         result.put("conversations", conversations);
+        result.put("page", pageNumber);
+        result.put("hasMore", summaries.size() == pageSize);
         return result;
     }
 
+    private int inboxPage(Integer page) {
+        return page == null ? 0 : Math.max(0, page);
+    }
+
+    private int inboxSize(Integer size) {
+        return size == null ? DEFAULT_INBOX_SIZE : Math.max(1, Math.min(size, MAX_INBOX_SIZE));
+    }
+
+    @Transactional(rollbackFor = Exception.class)
     public void markAsRead(String messageId, String userEmail) throws Exception {
         Optional<Message> messageOptional = messageRepository.findById(Long.valueOf(messageId));
         if (messageOptional.isEmpty()) {
@@ -114,11 +248,97 @@ public class MessageService {
             throw new Exception("Unauthorized to mark this message as read");
         }
 
-        message.setRead(true);
-        messageRepository.save(message);
+        if (!message.isRead() && messageRepository.markReadIfUnread(message.getId()) == 1) {
+            message.setRead(true);
+            conversationSummaryService.recordRead(message);
+            eventPublisher.publishEvent(new MessageReadEvent(message));
+        }
+    }
+
+    // Soft delete, sender only; the row disappears from reads at once and is purged by the archiver later.
+    // Archived messages cannot be changed in place, so they get a tombstone that archive reads skip.
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteMessage(String messageId, String userEmail) throws Exception {
+        Long id = Long.valueOf(messageId);
+        Optional<Message> hot = messageRepository.findById(id);
+        Optional<Message> messageOptional = hot.isPresent() ? hot : messageArchiveService.findMessage(id);
+        if (messageOptional.isEmpty() || messageOptional.get().isDeleted()) {
+            throw new Exception("Message not found");
+        }
+
+        Message message = messageOptional.get();
+        if (!message.getSenderEmail().equals(userEmail)) {
+            throw new Exception("Unauthorized to delete this message");
+        }
+
+        message.setDeleted(true);
+        if (hot.isPresent()) {
+            messageRepository.save(message);
+        } else {
+            messageArchiveService.tombstone(message);
+        }
+        conversationSummaryService.recordDeleted(message);
+        eventPublisher.publishEvent(new MessageDeletedEvent(message));
+    }
+
+    // Full-text search over the caller's own sent and received messages, newest first.
+    // "before" is the nextCursor of the previous page; one extra hit is read to detect whether more exist.
+    public Map<String, Object> searchMessages(String userEmail, String query, Long before, Integer size) throws Exception {
+        if (query == null || query.isBlank()) {
+            throw new Exception("Search query is required");
+        }
+        Long userId = userCache.getIdByEmail(userEmail).orElseThrow(() -> new Exception("User not found"));
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        List<Long> ids = messageSearchIndex.search(userId, query, before, pageSize + 1);
+        boolean hasMore = ids.size() > pageSize;
+        if (hasMore) {
+            ids = ids.subList(0, pageSize);
+        }
+
+        Map<Long, MessageView> found = new HashMap<>();
+        if (!ids.isEmpty()) {
+            messageRepository.findViewsByIds(ids).forEach(view -> found.put(view.getId(), view));
+        }
+        List<MessageView> messages = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            MessageView view = found.get(id);
+            if (view == null) {
+                view = messageArchiveService.findMessage(id).map(MessageView::of).orElse(null);
+            }
+            if (view != null) {
+                messages.add(view);
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("messages", messages);
+        result.put("hasMore", hasMore);
+        result.put("nextCursor", hasMore ? ids.get(ids.size() - 1) : null);
+        return result;
+    }
+
+    public Message getMessageWithMedia(String messageId, String userEmail) throws Exception {
+        Optional<Message> messageOptional = messageRepository.findById(Long.valueOf(messageId));
+        if (messageOptional.isEmpty()) {
+            messageOptional = messageArchiveService.findMessage(Long.valueOf(messageId));
+        }
+        if (messageOptional.isEmpty() || messageOptional.get().isDeleted()) {
+            throw new Exception("Message not found");
+        }
+
+        Message message = messageOptional.get();
+        if (!message.getSenderEmail().equals(userEmail) && !message.getRecipientEmail().equals(userEmail)) {
+            throw new Exception("Unauthorized to access this message");
+        }
+        if (message.getMediaId() == null) {
+            throw new Exception("Message has no media");
+        }
+        return message;
     }
 
-    public List<Message> getUnreadMessages(String userEmail) {
-        return messageRepository.findUnreadMessages(userEmail);
+    public List<MessageView> getUnreadMessages(String userEmail) throws Exception {
+        Long userId = userCache.getIdByEmail(userEmail).orElseThrow(() -> new Exception("User not found"));
+        return messageRepository.findUnreadMessages(userId);
     }
 }
\ No newline at end of file
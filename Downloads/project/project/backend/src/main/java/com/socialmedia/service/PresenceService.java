@@ -0,0 +1,296 @@
+package com.socialmedia.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-memory presence: who is online or away, when they were last seen, and whom they are typing to.
+// Nothing here touches the database; a restart simply shows everyone offline until their next heartbeat.
+// Entries live in a fixed number of shards, each a plain map under its own lock. Heartbeats that would
+// change nothing visible (same state, seen within the coalescing window, typing still fresh) return
+// without writing, so clients can send one per keystroke. Expiry runs on a hashed timer wheel per shard:
+// a heartbeat only moves the entry's deadline, and when the wheel reaches the slot an entry sits in,
+// the entry is either dropped or re-slotted at its current deadline.
+@Service
+public class PresenceService {
+
+    public enum State { ONLINE, AWAY }
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private RealtimeHub realtimeHub;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.presence.shards:16}")
+    private int shardCount;
+
+    @Value("${app.presence.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.presence.coalesce-ms:5000}")
+    private long coalesceMs;
+
+    @Value("${app.presence.typing-ttl-ms:6000}")
+    private long typingTtlMs;
+
+    @Value("${app.presence.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${app.presence.wheel-size:128}")
+    private int wheelSize;
+
+    @Value("${app.presence.max-batch:500}")
+    private int maxBatch;
+
+    private Shard[] shards;
+    private long lastTick;
+    private final AtomicInteger online = new AtomicInteger();
+    private Counter applied;
+    private Counter coalesced;
+
+    @PostConstruct
+    public void init() {
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(wheelSize);
+        }
+        lastTick = System.currentTimeMillis() / tickMs;
+        applied = Counter.builder("presence.heartbeats").tag("result", "applied").register(meterRegistry);
+        coalesced = Counter.builder("presence.heartbeats").tag("result", "coalesced").register(meterRegistry);
+        Gauge.builder("presence.online", online, AtomicInteger::get).register(meterRegistry);
+    }
+
+    // state is "online" (default), "away" or "offline"; typingTo is the partner being typed to, or null
+    public void heartbeat(String userEmail, String state, Long typingTo) throws Exception {
+        Long userId = userCache.getIdByEmail(userEmail).orElseThrow(() -> new Exception("User not found"));
+        if ("offline".equalsIgnoreCase(state)) {
+            goOffline(userId);
+            return;
+        }
+        State parsed;
+        try {
+            parsed = state == null ? State.ONLINE : State.valueOf(state.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new Exception("Unknown presence state: " + state);
+        }
+
+        long now = System.currentTimeMillis();
+        Long typingStarted = null;
+        Long typingStopped = null;
+        Shard shard = shardFor(userId);
+        synchronized (shard) {
+            Entry entry = shard.entries.get(userId);
+            if (entry == null) {
+                entry = new Entry(userId);
+                entry.expiresAt = now + ttlSeconds * 1000;
+                shard.entries.put(userId, entry);
+                shard.schedule(entry, tickMs);
+                online.incrementAndGet();
+            } else if (entry.state == parsed && now - entry.lastSeen < coalesceMs && !typingChanges(entry, typingTo, now)) {
+                coalesced.increment();
+                return;
+            }
+
+            entry.state = parsed;
+            entry.lastSeen = now;
+            entry.expiresAt = now + ttlSeconds * 1000;
+            if (entry.typingTo != null && entry.typingUntil > now && !entry.typingTo.equals(typingTo)) {
+                typingStopped = entry.typingTo;
+            }
+            if (typingTo != null && typingChanges(entry, typingTo, now)) {
+                typingStarted = typingTo;
+                entry.typingUntil = now + typingTtlMs;
+            }
+            entry.typingTo = typingTo;
+        }
+        applied.increment();
+
+        if (typingStopped != null) {
+            notifyTyping(userId, typingStopped, false);
+        }
+        if (typingStarted != null) {
+            notifyTyping(userId, typingStarted, true);
+        }
+    }
+
+    // Presence of many users at once, keyed by id. "typing" is only ever true toward the viewer.
+    public Map<Long, Map<String, Object>> getPresence(String viewerEmail, Collection<Long> userIds) throws Exception {
+        Long viewerId = userCache.getIdByEmail(viewerEmail).orElseThrow(() -> new Exception("User not found"));
+        if (userIds == null || userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (userIds.size() > maxBatch) {
+            throw new Exception("At most " + maxBatch + " users can be queried at once");
+        }
+
+        // One lock acquisition per shard, not per user
+        List<List<Long>> byShard = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (Long userId : userIds) {
+            if (userId != null) {
+                byShard.get(shardIndex(userId)).add(userId);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        Map<Long, Map<String, Object>> result = new LinkedHashMap<>();
+        for (int i = 0; i < shardCount; i++) {
+            if (byShard.get(i).isEmpty()) {
+                continue;
+            }
+            synchronized (shards[i]) {
+                for (Long userId : byShard.get(i)) {
+                    Entry entry = shards[i].entries.get(userId);
+                    Map<String, Object> presence = new HashMap<>();
+                    if (entry == null || entry.expiresAt <= now) {
+                        presence.put("state", "offline");
+                    } else {
+                        presence.put("state", entry.state.name().toLowerCase(Locale.ROOT));
+                        presence.put("lastSeen", entry.lastSeen);
+                        presence.put("typing", viewerId.equals(entry.typingTo) && entry.typingUntil > now);
+                    }
+                    result.put(userId, presence);
+                }
+            }
+        }
+        return result;
+    }
+
+    public int getOnlineCount() {
+        return online.get();
+    }
+
+    // Advances the wheel to the current tick. A late run catches up on the missed slots, but never
+    // sweeps the wheel more than once.
+    @Scheduled(fixedRateString = "${app.presence.tick-ms:1000}")
+    public synchronized void tick() {
+        long now = System.currentTimeMillis();
+        long current = now / tickMs;
+        for (long tick = Math.max(lastTick + 1, current - wheelSize + 1); tick <= current; tick++) {
+            int slot = (int) (tick % wheelSize);
+            for (Shard shard : shards) {
+                synchronized (shard) {
+                    online.addAndGet(-shard.expire(slot, now, tickMs));
+                }
+            }
+        }
+        lastTick = current;
+    }
+
+    private void goOffline(Long userId) {
+        Long typingStopped = null;
+        Shard shard = shardFor(userId);
+        synchronized (shard) {
+            // The id stays in its wheel slot until that slot comes round; the sweep skips it then
+            Entry entry = shard.entries.remove(userId);
+            if (entry == null) {
+                return;
+            }
+            online.decrementAndGet();
+            if (entry.typingTo != null && entry.typingUntil > System.currentTimeMillis()) {
+                typingStopped = entry.typingTo;
+            }
+        }
+        if (typingStopped != null) {
+            notifyTyping(userId, typingStopped, false);
+        }
+    }
+
+    // Typing is pushed to the partner's open streams; only starts, refreshes and explicit stops are sent,
+    // and the partner's UI drops the indicator on its own once expiresInMs has passed
+    private void notifyTyping(Long userId, Long partnerId, boolean typing) {
+        userCache.getById(partnerId).ifPresent(partner -> {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("userId", userId);
+            payload.put("typing", typing);
+            payload.put("expiresInMs", typing ? typingTtlMs : 0);
+            realtimeHub.publish(partner.getEmail(), "typing", payload);
+        });
+    }
+
+    // A typing heartbeat is news when it names a different partner or the current one is past half its lifetime
+    private boolean typingChanges(Entry entry, Long typingTo, long now) {
+        boolean typing = entry.typingTo != null && entry.typingUntil > now;
+        if (typingTo == null) {
+            return typing;
+        }
+        return !typing || !typingTo.equals(entry.typingTo) || entry.typingUntil - now < typingTtlMs / 2;
+    }
+
+    private Shard shardFor(Long userId) {
+        return shards[shardIndex(userId)];
+    }
+
+    private int shardIndex(Long userId) {
+        return Math.floorMod(Long.hashCode(userId * 0x9E3779B97F4A7C15L), shardCount);
+    }
+
+    private static final class Shard {
+        final Map<Long, Entry> entries = new HashMap<>();
+        final List<Set<Long>> wheel;
+
+        Shard(int wheelSize) {
+            wheel = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                wheel.add(new HashSet<>());
+            }
+        }
+
+        // Slot of the first tick at or after the deadline, so an entry is never swept before it is due
+        void schedule(Entry entry, long tickMs) {
+            long tick = (entry.expiresAt + tickMs - 1) / tickMs;
+            wheel.get((int) (tick % wheel.size())).add(entry.userId);
+        }
+
+        // Drops the slot's due entries and re-slots the ones whose deadline has moved; returns how many were dropped
+        int expire(int slot, long now, long tickMs) {
+            Set<Long> due = wheel.get(slot);
+            if (due.isEmpty()) {
+                return 0;
+            }
+            wheel.set(slot, new HashSet<>());
+            int expired = 0;
+            for (Long userId : due) {
+                Entry entry = entries.get(userId);
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.expiresAt <= now) {
+                    entries.remove(userId);
+                    expired++;
+                } else {
+                    schedule(entry, tickMs);
+                }
+            }
+            return expired;
+        }
+    }
+
+    // Guarded by the owning shard's lock
+    private static final class Entry {
+        final Long userId;
+        State state;
+        long lastSeen;
+        long expiresAt;
+        Long typingTo;
+        long typingUntil;
+
+        Entry(Long userId) {
+            this.userId = userId;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.socialmedia.service;
+
+import com.socialmedia.event.MessageDeletedEvent;
+import com.socialmedia.event.MessageReadEvent;
+import com.socialmedia.event.MessageSentEvent;
+import com.socialmedia.model.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// In-process push hub: one SSE stream per connected client, grouped by user.
+// Every connection has a bounded outbound queue drained by a shared sender pool, so a slow
+// client only ever delays itself; once its queue overflows it is disconnected. A socket write
+// that stalls past the write timeout drops its connection, and the pool grows by one thread
+// for as long as that write stays stuck, so stalled clients never starve the healthy ones.
+@Service
+public class RealtimeHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(RealtimeHub.class);
+
+    @Value("${app.realtime.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${app.realtime.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    @Value("${app.realtime.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${app.realtime.sender-threads:8}")
+    private int senderThreads;
+
+    @Value("${app.realtime.write-timeout-ms:5000}")
+    private long writeTimeoutMs;
+
+    @Value("${app.realtime.max-stalled-senders:64}")
+    private int maxStalledSenders;
+
+    private final ConcurrentHashMap<String, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private final Set<Connection> stalled = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor senders;
+
+    @PostConstruct
+    public void init() {
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "realtime-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(set -> set.forEach(this::complete));
+        senders.shutdownNow();
+    }
+
+    public SseEmitter connect(String userEmail) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Connection connection = new Connection(userEmail, emitter, queueCapacity);
+
+        Set<Connection> userConnections = connections.compute(userEmail, (email, set) -> {
+            Set<Connection> target = set != null ? set : ConcurrentHashMap.newKeySet();
+            target.add(connection);
+            return target;
+        });
+        // Cap streams per user; the oldest one is dropped first
+        while (userConnections.size() > maxConnectionsPerUser) {
+            userConnections.stream().min(Comparator.comparingLong(c -> c.openedAt)).ifPresent(this::evict);
+        }
+
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(error -> remove(connection));
+
+        enqueue(connection, SseEmitter.event().name("connected").data(Map.of("email", userEmail)));
+        return emitter;
+    }
+
+    public void publish(String userEmail, String eventName, Object payload) {
+        Set<Connection> userConnections = connections.get(userEmail);
+        if (userConnections == null) {
+            return;
+        }
+        for (Connection connection : userConnections) {
+            enqueue(connection, SseEmitter.event().name(eventName).data(payload));
+        }
+    }
+
+    public boolean isOnline(String userEmail) {
+        Set<Connection> userConnections = connections.get(userEmail);
+        return userConnections != null && !userConnections.isEmpty();
+    }
+
+    public int getConnectionCount() {
+        return connections.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @TransactionalEventListener
+    public void onMessageSent(MessageSentEvent event) {
+        Message message = event.getMessage();
+        publish(message.getRecipientEmail(), "message", message);
+        // Echo to the sender's other open devices
+        if (!message.getSenderEmail().equals(message.getRecipientEmail())) {
+            publish(message.getSenderEmail(), "message", message);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onMessageRead(MessageReadEvent event) {
+        Message message = event.getMessage();
+        Map<String, Object> receipt = new HashMap<>();
+        receipt.put("messageId", message.getId());
+        receipt.put("readerEmail", message.getRecipientEmail());
+        publish(message.getSenderEmail(), "read", receipt);
+        publish(message.getRecipientEmail(), "read", receipt);
+    }
+
+    @TransactionalEventListener
+    public void onMessageDeleted(MessageDeletedEvent event) {
+        Message message = event.getMessage();
+        Map<String, Object> notice = new HashMap<>();
+        notice.put("messageId", message.getId());
+        publish(message.getRecipientEmail(), "deleted", notice);
+        if (!message.getSenderEmail().equals(message.getRecipientEmail())) {
+            publish(message.getSenderEmail(), "deleted", notice);
+        }
+    }
+
+    // Keeps idle streams open through proxies and flushes out dead connections
+    @Scheduled(fixedDelayString = "${app.realtime.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        connections.values().forEach(set -> set.forEach(connection ->
+                enqueue(connection, SseEmitter.event().comment("heartbeat"))));
+    }
+
+    // Drops connections whose current write has been blocked too long and keeps one spare
+    // sender thread per write that is still stuck, up to max-stalled-senders
+    @Scheduled(fixedDelayString = "${app.realtime.stall-check-interval-ms:1000}")
+    public void reapStalledWrites() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        connections.values().forEach(set -> set.forEach(connection -> {
+            long startedAt = connection.writeStartedAt;
+            if (startedAt != 0L && now - startedAt > timeoutNanos) {
+                logger.debug("Dropping stalled realtime consumer {}", connection.userEmail);
+                stalled.add(connection);
+                remove(connection);
+            }
+        }));
+        // A dropped connection stops sending after its current write, so it is stuck only while that lasts
+        stalled.removeIf(connection -> connection.writeStartedAt == 0L);
+        int poolSize = senderThreads + Math.min(stalled.size(), maxStalledSenders);
+        if (poolSize > senders.getMaximumPoolSize()) {
+            senders.setMaximumPoolSize(poolSize);
+            senders.setCorePoolSize(poolSize);
+        } else if (poolSize < senders.getMaximumPoolSize()) {
+            senders.setCorePoolSize(poolSize);
+            senders.setMaximumPoolSize(poolSize);
+        }
+    }
+
+    private void enqueue(Connection connection, SseEmitter.SseEventBuilder event) {
+        if (!connection.queue.offer(event)) {
+            logger.debug("Evicting slow realtime consumer {}", connection.userEmail);
+            evict(connection);
+            return;
+        }
+        schedule(connection);
+    }
+
+    private void schedule(Connection connection) {
+        if (connection.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(connection));
+            } catch (RejectedExecutionException e) {
+                connection.draining.set(false);
+            }
+        }
+    }
+
+    // Only the thread holding the draining flag touches the emitter, so completing a dropped
+    // connection never waits behind another thread's blocked write
+    private void drain(Connection connection) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (!connection.closed && (event = connection.queue.poll()) != null) {
+                connection.writeStartedAt = System.nanoTime();
+                connection.emitter.send(event);
+                connection.writeStartedAt = 0L;
+            }
+        } catch (Exception e) {
+            remove(connection);
+        } finally {
+            connection.writeStartedAt = 0L;
+            if (connection.closed && !connection.completed) {
+                complete(connection);
+            }
+            connection.draining.set(false);
+        }
+        // An event or an eviction may have arrived between the last check and releasing the flag
+        if (connection.closed ? !connection.completed : !connection.queue.isEmpty()) {
+            schedule(connection);
+        }
+    }
+
+    private void evict(Connection connection) {
+        remove(connection);
+        schedule(connection);
+    }
+
+    private void complete(Connection connection) {
+        connection.completed = true;
+        try {
+            connection.emitter.complete();
+        } catch (Exception ignored) {
+            // Already completed
+        }
+    }
+
+    private void remove(Connection connection) {
+        connection.closed = true;
+        connection.queue.clear();
+        connections.computeIfPresent(connection.userEmail, (email, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static class Connection {
+        final String userEmail;
+        final SseEmitter emitter;
+        final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        final AtomicBoolean draining = new AtomicBoolean(false);
+        final long openedAt = System.nanoTime();
+        volatile long writeStartedAt = 0L;
+        volatile boolean closed = false;
+        volatile boolean completed = false;
+
+        Connection(String userEmail, SseEmitter emitter, int capacity) {
+            this.userEmail = userEmail;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
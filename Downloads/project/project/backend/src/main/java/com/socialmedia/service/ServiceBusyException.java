@@ -0,0 +1,16 @@
+package com.socialmedia.service;
+
+// Thrown when a bounded worker pool is saturated; controllers map it to 503 with Retry-After
+public class ServiceBusyException extends Exception {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
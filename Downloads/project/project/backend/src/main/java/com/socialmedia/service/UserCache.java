@@ -0,0 +1,186 @@
+package com.socialmedia.service;
+
+import com.socialmedia.dto.UserSnapshot;
+import com.socialmedia.model.User;
+import com.socialmedia.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+// Read-through cache of user snapshots keyed by id, with an email -> id side index.
+// Entries expire after a TTL and are dropped explicitly whenever a user is written; inside a
+// transaction the drop happens after commit so a concurrent reader cannot re-cache the old row.
+@Service
+public class UserCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.user-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.user-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private Map<Long, Entry> byId;
+    private final Map<String, Long> idByEmail = new HashMap<>();
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private long generation = 0;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        byId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > maxEntries) {
+                    idByEmail.remove(eldest.getValue().snapshot.getEmail());
+                    return true;
+                }
+                return false;
+            }
+        };
+        hits = Counter.builder("user.cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("user.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("user.cache.size", this, cache -> cache.size()).register(meterRegistry);
+    }
+
+    public Optional<UserSnapshot> getById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        long loadGeneration;
+        synchronized (this) {
+            UserSnapshot cached = lookup(id);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        return userRepository.findById(id).map(user -> store(user, loadGeneration));
+    }
+
+    public Optional<UserSnapshot> getByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        long loadGeneration;
+        synchronized (this) {
+            Long id = idByEmail.get(email);
+            UserSnapshot cached = id == null ? null : lookup(id);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        return userRepository.findByEmail(email).map(user -> store(user, loadGeneration));
+    }
+
+    public Optional<Long> getIdByEmail(String email) {
+        return getByEmail(email).map(UserSnapshot::getId);
+    }
+
+    // Cached where possible, the rest in one query
+    public Map<String, UserSnapshot> getByEmails(Collection<String> emails) {
+        Map<String, UserSnapshot> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        long loadGeneration;
+        synchronized (this) {
+            for (String email : emails) {
+                Long id = idByEmail.get(email);
+                UserSnapshot cached = id == null ? null : lookup(id);
+                if (cached != null) {
+                    found.put(email, cached);
+                } else {
+                    missing.add(email);
+                }
+            }
+            loadGeneration = generation;
+        }
+        hits.increment(found.size());
+        misses.increment(missing.size());
+        if (!missing.isEmpty()) {
+            for (User user : userRepository.findByEmailIn(missing)) {
+                found.put(user.getEmail(), store(user, loadGeneration));
+            }
+        }
+        return found;
+    }
+
+    public void invalidate(Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(id);
+                }
+            });
+        }
+        evict(id);
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    private synchronized void evict(Long id) {
+        Entry entry = byId.remove(id);
+        if (entry != null) {
+            idByEmail.remove(entry.snapshot.getEmail());
+        }
+        generation++;
+    }
+
+    private UserSnapshot lookup(Long id) {
+        Entry entry = byId.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.nanoTime()) {
+            byId.remove(id);
+            idByEmail.remove(entry.snapshot.getEmail());
+            return null;
+        }
+        return entry.snapshot;
+    }
+
+    private UserSnapshot store(User user, long loadGeneration) {
+        UserSnapshot snapshot = new UserSnapshot(user);
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                Entry previous = byId.put(user.getId(), new Entry(snapshot, System.nanoTime() + ttlSeconds * 1_000_000_000L));
+                if (previous != null && !previous.snapshot.getEmail().equals(snapshot.getEmail())) {
+                    idByEmail.remove(previous.snapshot.getEmail());
+                }
+                idByEmail.put(snapshot.getEmail(), user.getId());
+            }
+        }
+        return snapshot;
+    }
+
+    private static final class Entry {
+        final UserSnapshot snapshot;
+        final long expiresAt;
+
+        Entry(UserSnapshot snapshot, long expiresAt) {
+            this.snapshot = snapshot;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
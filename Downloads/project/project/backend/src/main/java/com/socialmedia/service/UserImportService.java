@@ -0,0 +1,361 @@
+package com.socialmedia.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialmedia.dto.SignupRequest;
+import com.socialmedia.model.User;
+import com.socialmedia.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.NotBlank;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Admin bulk import of users from an NDJSON file (one signup object per line).
+// The upload is spooled to disk and processed by a background job in batches: duplicates are
+// checked with one query per batch, passwords are hashed in parallel on a dedicated pool, and
+// rows go in with a single JDBC batch insert per batch.
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final String DEFAULT_AVATAR = "https://images.pexels.com/photos/220453/pexels-photo-220453.jpeg?auto=compress&cs=tinysrgb&w=150";
+    private static final String DEFAULT_BIO = "New member of this community";
+    private static final String[] VALIDATED_FIELDS = {"username", "displayName", "email", "password"};
+
+    private static final String INSERT_SQL = "INSERT INTO users (username, display_name, email, password, avatar, bio, "
+            + "followers, following_count, join_date, last_modified, active) VALUES (?, ?, ?, ?, ?, ?, 0, 0, ?, ?, true)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.import.spool-dir:data/imports}")
+    private String spoolDir;
+
+    @Value("${app.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.import.hash-threads:0}")
+    private int hashThreads;
+
+    private Path spoolRoot;
+    private ExecutorService jobRunner;
+    private ExecutorService hashers;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public UserImportService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        spoolRoot = Paths.get(spoolDir).toAbsolutePath().normalize();
+        Files.createDirectories(spoolRoot);
+        // One import at a time; each one already uses every core for hashing
+        jobRunner = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(4), runnable -> {
+            Thread thread = new Thread(runnable, "user-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        hashers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-hasher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobRunner.shutdownNow();
+        hashers.shutdownNow();
+    }
+
+    // Callers are limited to ROLE_ADMIN by SecurityConfig
+    public ImportJob startImport(InputStream body) throws Exception {
+        // Finished jobs stay queryable for a day
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(1);
+        jobs.values().removeIf(old -> old.finishedAt != null && old.finishedAt.isBefore(cutoff));
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString());
+        Path spooled = spoolRoot.resolve(job.id + ".ndjson");
+        Files.copy(body, spooled, StandardCopyOption.REPLACE_EXISTING);
+
+        jobs.put(job.id, job);
+        try {
+            jobRunner.execute(() -> run(job, spooled));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            Files.deleteIfExists(spooled);
+            throw new ServiceBusyException("Too many imports queued, please retry later", 60);
+        }
+        return job;
+    }
+
+    public ImportJob getJob(String jobId) throws Exception {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new Exception("Import job not found");
+        }
+        return job;
+    }
+
+    private void run(ImportJob job, Path spooled) {
+        job.status = ImportJob.STATUS_RUNNING;
+        try (BufferedReader reader = Files.newBufferedReader(spooled, StandardCharsets.UTF_8)) {
+            List<Row> batch = new ArrayList<>(batchSize);
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(new Row(lineNumber, objectMapper.readValue(line, SignupRequest.class)));
+                } catch (IOException e) {
+                    job.fail(lineNumber, "Malformed JSON");
+                    job.processed.incrementAndGet();
+                }
+                if (batch.size() >= batchSize) {
+                    processBatch(job, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                processBatch(job, batch);
+            }
+            job.status = ImportJob.STATUS_COMPLETE;
+        } catch (Exception e) {
+            logger.error("User import {} failed", job.id, e);
+            job.status = ImportJob.STATUS_FAILED;
+            job.message = e.getMessage();
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException e) {
+                logger.warn("Failed to remove import spool {}: {}", spooled, e.getMessage());
+            }
+            logger.info("User import {} finished: {} imported, {} failed", job.id, job.imported.get(), job.failed.get());
+        }
+    }
+
+    private void processBatch(ImportJob job, List<Row> batch) throws Exception {
+        List<Row> valid = new ArrayList<>(batch.size());
+        Set<String> batchUsernames = new HashSet<>();
+        Set<String> batchEmails = new HashSet<>();
+        for (Row row : batch) {
+            String error = validate(row.request);
+            if (error == null && !batchUsernames.add(row.request.getUsername())) {
+                error = "Duplicate username in file";
+            }
+            if (error == null && !batchEmails.add(row.request.getEmail())) {
+                error = "Duplicate email in file";
+            }
+            if (error != null) {
+                job.fail(row.line, error);
+            } else {
+                valid.add(row);
+            }
+        }
+
+        // One round trip for the whole batch instead of two exists-queries per row
+        if (!valid.isEmpty()) {
+            Set<String> takenUsernames = new HashSet<>();
+            Set<String> takenEmails = new HashSet<>();
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("usernames", batchUsernames)
+                    .addValue("emails", batchEmails);
+            namedParameterJdbcTemplate.query("SELECT username, email FROM users WHERE username IN (:usernames) OR email IN (:emails)",
+                    params, rs -> {
+                        takenUsernames.add(rs.getString("username"));
+                        takenEmails.add(rs.getString("email"));
+                    });
+            valid.removeIf(row -> {
+                if (takenUsernames.contains(row.request.getUsername())) {
+                    job.fail(row.line, "Username is already taken");
+                    return true;
+                }
+                if (takenEmails.contains(row.request.getEmail())) {
+                    job.fail(row.line, "Email is already in use");
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        if (!valid.isEmpty()) {
+            hashPasswords(valid);
+            insert(job, valid);
+        }
+        job.processed.addAndGet(batch.size());
+    }
+
+    private void hashPasswords(List<Row> rows) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            futures.add(hashers.submit(() -> row.hash = passwordEncoder.encode(row.request.getPassword())));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private void insert(ImportJob job, List<Row> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(),
+                    (ps, row) -> bind(ps, row, now)));
+            job.imported.addAndGet(rows.size());
+        } catch (DataAccessException e) {
+            // A concurrent signup took one of the names; retry row by row to isolate it
+            for (Row row : rows) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, row, now));
+                    job.imported.incrementAndGet();
+                } catch (DuplicateKeyException rowError) {
+                    job.fail(row.line, userRepository.existsByUsername(row.request.getUsername())
+                            ? "Username is already taken" : "Email is already in use");
+                } catch (DataIntegrityViolationException rowError) {
+                    job.fail(row.line, "Rejected by the database: " + rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        List<String> emails = new ArrayList<>(rows.size());
+        rows.forEach(row -> emails.add(row.request.getEmail()));
+        userRepository.findByEmailIn(emails).forEach(userSearchIndex::upsert);
+    }
+
+    private static void bind(PreparedStatement ps, Row row, Timestamp now) throws SQLException {
+        ps.setString(1, row.request.getUsername());
+        ps.setString(2, row.request.getDisplayName());
+        ps.setString(3, row.request.getEmail());
+        ps.setString(4, row.hash);
+        ps.setString(5, DEFAULT_AVATAR);
+        ps.setString(6, DEFAULT_BIO);
+        ps.setTimestamp(7, now);
+        ps.setTimestamp(8, now);
+    }
+
+    // Checks each field against the constraints declared on User, the same ones a signup is held to
+    private String validate(SignupRequest request) {
+        Object[] values = {request.getUsername(), request.getDisplayName(), request.getEmail(), request.getPassword()};
+        for (int i = 0; i < VALIDATED_FIELDS.length; i++) {
+            Set<ConstraintViolation<User>> violations = validator.validateValue(User.class, VALIDATED_FIELDS[i], values[i]);
+            // A blank value also breaks its size rule; report it as missing, like the signup form does
+            Optional<ConstraintViolation<User>> violation = violations.stream().min(Comparator.comparingInt(
+                    v -> v.getConstraintDescriptor().getAnnotation() instanceof NotBlank ? 0 : 1));
+            if (violation.isPresent()) {
+                return violation.get().getMessage();
+            }
+        }
+        return null;
+    }
+
+    private static final class Row {
+        final int line;
+        final SignupRequest request;
+        volatile String hash;
+
+        Row(int line, SignupRequest request) {
+            this.line = line;
+            this.request = request;
+        }
+    }
+
+    public static final class ImportJob {
+        public static final String STATUS_QUEUED = "QUEUED";
+        public static final String STATUS_RUNNING = "RUNNING";
+        public static final String STATUS_COMPLETE = "COMPLETE";
+        public static final String STATUS_FAILED = "FAILED";
+
+        private final String id;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger imported = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final List<Map<String, Object>> errors = Collections.synchronizedList(new ArrayList<>());
+        private volatile String status = STATUS_QUEUED;
+        private volatile String message;
+        private volatile LocalDateTime finishedAt;
+
+        ImportJob(String id) {
+            this.id = id;
+        }
+
+        void fail(int line, String error) {
+            failed.incrementAndGet();
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(Map.of("line", line, "error", error));
+            }
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("jobId", id);
+            map.put("status", status);
+            map.put("message", message);
+            map.put("processed", processed.get());
+            map.put("imported", imported.get());
+            map.put("failed", failed.get());
+            synchronized (errors) {
+                map.put("errors", new ArrayList<>(errors));
+            }
+            map.put("startedAt", startedAt);
+            map.put("finishedAt", finishedAt);
+            return map;
+        }
+    }
+}
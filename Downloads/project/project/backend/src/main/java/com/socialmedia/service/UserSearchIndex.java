@@ -0,0 +1,338 @@
+package com.socialmedia.service;
+
+import com.socialmedia.dto.UserSummary;
+import com.socialmedia.model.User;
+import com.socialmedia.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory typeahead index over active users.
+// Queries of three or more characters are answered from trigram postings (substring match);
+// shorter queries use word-prefix grams, so typing the first letter is already a cheap lookup.
+// Postings are sorted long[] arrays to keep memory and intersection cost low; they grow by doubling,
+// so inserting a user does not copy every posting list it touches.
+@Service
+public class UserSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+    private static final Postings EMPTY = new Postings(0);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<UserSummary> users = userRepository.findActiveUserSummaries();
+        // Built outside the lock: ids are appended unsorted and each list is sorted once at the end
+        Map<Long, Entry> builtEntries = new HashMap<>(users.size() * 2);
+        Map<String, Postings> builtPostings = new HashMap<>();
+        for (UserSummary summary : users) {
+            Entry entry = new Entry(summary);
+            builtEntries.put(summary.getId(), entry);
+            for (String gram : entry.grams()) {
+                builtPostings.computeIfAbsent(gram, key -> new Postings(4)).append(summary.getId());
+            }
+        }
+        builtPostings.values().forEach(Postings::seal);
+
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+            entries.putAll(builtEntries);
+            postings.putAll(builtPostings);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("User search index built with {} users", users.size());
+    }
+
+    public void upsert(User user) {
+        if (!user.isActive()) {
+            remove(user.getId());
+            return;
+        }
+        UserSummary summary = new UserSummary(user.getId(), user.getUsername(), user.getDisplayName(), user.getEmail(), user.getAvatar());
+        lock.writeLock().lock();
+        try {
+            removeLocked(user.getId());
+            addLocked(summary);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<UserSummary> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Max-heap on rank so the worst of the current top-k is evicted first
+        PriorityQueue<Ranked> top = new PriorityQueue<>(Comparator.<Ranked>naturalOrder().reversed());
+        lock.readLock().lock();
+        try {
+            Postings candidates = candidates(q);
+            for (int i = 0; i < candidates.size; i++) {
+                Entry entry = entries.get(candidates.ids[i]);
+                int score = entry == null ? -1 : entry.score(q);
+                if (score < 0) {
+                    continue;
+                }
+                top.offer(new Ranked(entry, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Ranked> ranked = new ArrayList<>(top);
+        Collections.sort(ranked);
+        List<UserSummary> results = new ArrayList<>(ranked.size());
+        ranked.forEach(r -> results.add(r.entry.summary));
+        return results;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Postings candidates(String q) {
+        if (q.length() < 3) {
+            return postings.getOrDefault("^" + q, EMPTY);
+        }
+        // Intersect trigram postings, rarest first, stopping early once nothing is left
+        List<Postings> lists = new ArrayList<>();
+        for (String gram : trigrams(q)) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                return EMPTY;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        Postings result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.size > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private void addLocked(UserSummary summary) {
+        Entry entry = new Entry(summary);
+        entries.put(summary.getId(), entry);
+        for (String gram : entry.grams()) {
+            postings.computeIfAbsent(gram, key -> new Postings(4)).insert(summary.getId());
+        }
+    }
+
+    private void removeLocked(Long userId) {
+        Entry entry = entries.remove(userId);
+        if (entry == null) {
+            return;
+        }
+        for (String gram : entry.grams()) {
+            Postings list = postings.get(gram);
+            if (list != null && list.delete(userId) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static Postings intersect(Postings a, Postings b) {
+        Postings out = new Postings(Math.min(a.size, b.size));
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.ids[i] < b.ids[j]) {
+                i++;
+            } else if (a.ids[i] > b.ids[j]) {
+                j++;
+            } else {
+                out.ids[out.size++] = a.ids[i];
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        final UserSummary summary;
+        final String username;
+        final String displayName;
+
+        Entry(UserSummary summary) {
+            this.summary = summary;
+            this.username = normalize(summary.getUsername());
+            this.displayName = normalize(summary.getDisplayName());
+        }
+
+        Set<String> grams() {
+            Set<String> grams = new HashSet<>();
+            grams.addAll(trigrams(username));
+            grams.addAll(trigrams(displayName));
+            for (String word : words()) {
+                grams.add("^" + word.charAt(0));
+                if (word.length() > 1) {
+                    grams.add("^" + word.substring(0, 2));
+                }
+            }
+            return grams;
+        }
+
+        List<String> words() {
+            List<String> words = new ArrayList<>();
+            if (!username.isEmpty()) {
+                words.add(username);
+            }
+            for (String word : displayName.split("\\s+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+            return words;
+        }
+
+        // Lower is better; -1 means the candidate does not actually match
+        int score(String q) {
+            if (username.equals(q)) {
+                return 0;
+            }
+            if (username.startsWith(q)) {
+                return 1;
+            }
+            if (displayName.startsWith(q)) {
+                return 2;
+            }
+            for (String word : words()) {
+                if (word.startsWith(q)) {
+                    return 3;
+                }
+            }
+            if (username.contains(q) || displayName.contains(q)) {
+                return 4;
+            }
+            return -1;
+        }
+    }
+
+    // Sorted ids in the first size slots of a buffer with spare capacity
+    private static final class Postings {
+        long[] ids;
+        int size;
+
+        Postings(int capacity) {
+            this.ids = new long[capacity];
+        }
+
+        // Bulk-load only; call seal() before the list is searched
+        void append(long id) {
+            ensureCapacity(size + 1);
+            ids[size++] = id;
+        }
+
+        void seal() {
+            Arrays.sort(ids, 0, size);
+            ids = Arrays.copyOf(ids, size);
+        }
+
+        void insert(long id) {
+            // New users get the highest id, so the common case is an append
+            if (size == 0 || id > ids[size - 1]) {
+                append(id);
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            ensureCapacity(size + 1);
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        boolean delete(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            if (size > 0 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+            }
+            return true;
+        }
+
+        private void ensureCapacity(int needed) {
+            if (needed > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(needed, Math.max(4, ids.length * 2)));
+            }
+        }
+    }
+
+    private static final class Ranked implements Comparable<Ranked> {
+        final Entry entry;
+        final int score;
+
+        Ranked(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Ranked other) {
+            int byScore = Integer.compare(score, other.score);
+            if (byScore != 0) {
+                return byScore;
+            }
+            int byLength = Integer.compare(entry.username.length(), other.entry.username.length());
+            if (byLength != 0) {
+                return byLength;
+            }
+            return Long.compare(entry.summary.getId(), other.entry.summary.getId());
+        }
+    }
+}
@@ -1,56 +1,103 @@
 package com.socialmedia.service;
 
+import com.socialmedia.dto.UserSnapshot;
+import com.socialmedia.dto.UserSummary;
 import com.socialmedia.model.User;
 import com.socialmedia.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
+@Timed("app.service")
 public class UserService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
     @Autowired
     private UserRepository userRepository;
 
-    public List<User> getAllUsers() {
-        List<User> users = userRepository.findAllActiveUsers();
-        // Remove passwords from response
-        users.forEach(user -> user.setPassword(null));
-        return users;
+    @Autowired
+    private AvatarService avatarService;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private FollowGraphService followGraphService;
+
+    @Autowired
+    private FollowerCounterService followerCounterService;
+
+    @Autowired
+    private UserCache userCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public static final int DEFAULT_SEARCH_LIMIT = 10;
+    public static final int MAX_SEARCH_LIMIT = 50;
+    public static final int DEFAULT_USER_PAGE_SIZE = 50;
+    public static final int MAX_USER_PAGE_SIZE = 200;
+    public static final int DEFAULT_FOLLOW_PAGE_SIZE = 20;
+    public static final int MAX_FOLLOW_PAGE_SIZE = 100;
+
+    public UserService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Keyset-paginated user directory, projected straight into summaries
+    public Map<String, Object> getAllUsers(Long after, Integer size) {
+        int pageSize = size == null ? DEFAULT_USER_PAGE_SIZE : Math.max(1, Math.min(size, MAX_USER_PAGE_SIZE));
+        List<UserSummary> users = userRepository.findActiveSummariesAfter(after == null ? 0L : after, PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = users.size() > pageSize;
+        if (hasMore) {
+            users = users.subList(0, pageSize);
+        }
+        Map<String, Object> page = new HashMap<>();
+        page.put("users", users);
+        page.put("hasMore", hasMore);
+        page.put("nextCursor", hasMore ? users.get(users.size() - 1).getId() : null);
+        return page;
+    }
+
+    // Weak validator for profile responses. followers is included because counter flushes change it
+    // without touching lastModified.
+    public static String eTagFor(User user) {
+        long modified = user.getLastModified() == null ? 0 : user.getLastModified().toInstant(ZoneOffset.UTC).toEpochMilli();
+        return "W/\"u" + user.getId() + "-" + modified + "-" + user.getFollowers() + "-" + user.getFollowingCount() + "\"";
     }
 
     public Optional<User> getUserById(String id) {
         try {
-            Optional<User> userOptional = userRepository.findById(Long.valueOf(id));
-            if (userOptional.isPresent()) {
-                User user = userOptional.get();
-                user.setPassword(null); // Remove password
-                return Optional.of(user);
+            Optional<UserSnapshot> snapshot = userCache.getById(Long.valueOf(id));
+            if (snapshot.isPresent()) {
+                return Optional.of(followerCounterService.applyPending(snapshot.get().toUser()));
             }
         } catch (NumberFormatException e) {
-            System.err.println("Invalid user ID format: " + id);
+            logger.debug("Invalid user ID format: {}", id);
         }
         return Optional.empty();
     }
 
     public Optional<User> getUserByEmail(String email) {
-        Optional<User> userOptional = userRepository.findByEmail(email);
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            user.setPassword(null); // Remove password
-            return Optional.of(user);
-        }
-        return Optional.empty();
+        return userCache.getByEmail(email).map(snapshot -> followerCounterService.applyPending(snapshot.toUser()));
     }
 
-    public List<User> searchUsers(String query) {
-        List<User> users = userRepository.searchUsers(query);
-        // Remove passwords from response
-        users.forEach(user -> user.setPassword(null));
-        return users;
+    public List<UserSummary> searchUsers(String query, Integer limit) {
+        int max = limit == null ? DEFAULT_SEARCH_LIMIT : Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        return userSearchIndex.search(query, max);
     }
 
     public User updateUser(String userEmail, User updatedUser) throws Exception {
@@ -74,8 +121,17 @@ public class UserService {
         if (updatedUser.getWebsite() != null) {
             user.setWebsite(updatedUser.getWebsite());
         }
+        boolean avatarStored = false;
         if (updatedUser.getAvatar() != null && !updatedUser.getAvatar().trim().isEmpty()) {
-            user.setAvatar(updatedUser.getAvatar());
+            String avatar = updatedUser.getAvatar().trim();
+            if (avatar.startsWith("data:")) {
+                avatarStored = true;
+                user.setAvatar(avatarService.storeDataUri(user.getId(), avatar));
+            } else if ((avatar.startsWith("http://") || avatar.startsWith("https://")) && avatar.length() <= 512) {
+                user.setAvatar(avatar);
+            } else {
+                throw new Exception("Avatar must be a base64 data URI or an http(s) URL");
+            }
         }
         if (updatedUser.getProfession() != null) {
             user.setProfession(updatedUser.getProfession());
@@ -86,53 +142,128 @@ public class UserService {
 
         user.setLastModified(LocalDateTime.now());
         User savedUser = userRepository.save(user);
+        if (avatarStored) {
+            avatarService.removeStaleVersions(savedUser.getId());
+        }
+        userCache.invalidate(savedUser.getId());
+        userSearchIndex.upsert(savedUser);
         savedUser.setPassword(null); // Remove password from response
-        return savedUser;
+        return followerCounterService.applyPending(savedUser);
     }
 
-    public User followUser(String followerEmail, String followeeEmail) throws Exception {
-        Optional<User> followerOptional = userRepository.findByEmail(followerEmail);
-        Optional<User> followeeOptional = userRepository.findByEmail(followeeEmail);
+    public User updateAvatar(String userEmail, InputStream image) throws Exception {
+        Optional<User> userOptional = userRepository.findByEmail(userEmail);
+        if (userOptional.isEmpty()) {
+            throw new Exception("User not found");
+        }
 
-        if (followerOptional.isEmpty() || followeeOptional.isEmpty()) {
+        User user = userOptional.get();
+        user.setAvatar(avatarService.storeAvatar(user.getId(), image));
+        user.setLastModified(LocalDateTime.now());
+        User savedUser = userRepository.save(user);
+        avatarService.removeStaleVersions(savedUser.getId());
+        userCache.invalidate(savedUser.getId());
+        userSearchIndex.upsert(savedUser);
+        savedUser.setPassword(null); // Remove password from response
+        return followerCounterService.applyPending(savedUser);
+    }
+
+    public void deactivateUser(String userEmail) throws Exception {
+        Optional<User> userOptional = userRepository.findByEmail(userEmail);
+        if (userOptional.isEmpty()) {
             throw new Exception("User not found");
         }
 
-        User follower = followerOptional.get();
-        User followee = followeeOptional.get();
+        User user = userOptional.get();
+        user.setActive(false);
+        user.setLastModified(LocalDateTime.now());
+        userRepository.save(user);
+        userCache.invalidate(user.getId());
+        userSearchIndex.remove(user.getId());
+    }
 
-        if (!follower.getFollowing().contains(followee.getId())) {
-            follower.getFollowing().add(followee.getId());
-            followee.setFollowers(followee.getFollowers() + 1);
-            
-            userRepository.save(follower);
-            userRepository.save(followee);
+    // The count is read only after the follow commits, which is when its delta becomes pending;
+    // reading it inside the transaction would miss the caller's own follow
+    public User followUser(String followerEmail, String followeeEmail) throws Exception {
+        Long followerId = userCache.getIdByEmail(followerEmail).orElseThrow(() -> new Exception("User not found"));
+        User followee = userCache.getByEmail(followeeEmail).orElseThrow(() -> new Exception("User not found")).toUser();
+        if (followerId.equals(followee.getId())) {
+            throw new Exception("You cannot follow yourself");
         }
 
+        transactionTemplate.executeWithoutResult(status -> {
+            if (followGraphService.follow(followerId, followee.getId())) {
+                userRepository.adjustFollowingCount(followerId, 1);
+                userCache.invalidate(followerId);
+                followerCounterService.recordAfterCommit(followee.getId(), 1);
+            }
+        });
+
         followee.setPassword(null);
-        return followee;
+        return followerCounterService.applyPending(followee);
     }
 
     public User unfollowUser(String followerEmail, String followeeEmail) throws Exception {
-        Optional<User> followerOptional = userRepository.findByEmail(followerEmail);
-        Optional<User> followeeOptional = userRepository.findByEmail(followeeEmail);
+        Long followerId = userCache.getIdByEmail(followerEmail).orElseThrow(() -> new Exception("User not found"));
+        User followee = userCache.getByEmail(followeeEmail).orElseThrow(() -> new Exception("User not found")).toUser();
 
-        if (followerOptional.isEmpty() || followeeOptional.isEmpty()) {
-            throw new Exception("User not found");
-        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (followGraphService.unfollow(followerId, followee.getId())) {
+                userRepository.adjustFollowingCount(followerId, -1);
+                userCache.invalidate(followerId);
+                followerCounterService.recordAfterCommit(followee.getId(), -1);
+            }
+        });
+
+        followee.setPassword(null);
+        return followerCounterService.applyPending(followee);
+    }
+
+    public boolean isFollowing(String followerEmail, Long followeeId) throws Exception {
+        Long followerId = userCache.getIdByEmail(followerEmail).orElseThrow(() -> new Exception("User not found"));
+        return followGraphService.isFollowing(followerId, followeeId);
+    }
 
-        User follower = followerOptional.get();
-        User followee = followeeOptional.get();
+    public Map<String, Object> getFollowers(Long userId, Long after, Integer size) {
+        int pageSize = clampFollowPageSize(size);
+        return toFollowPage(followGraphService.getFollowersPage(userId, after, pageSize + 1), pageSize);
+    }
+
+    public Map<String, Object> getFollowing(Long userId, Long after, Integer size) {
+        int pageSize = clampFollowPageSize(size);
+        return toFollowPage(followGraphService.getFollowingPage(userId, after, pageSize + 1), pageSize);
+    }
 
-        if (follower.getFollowing().contains(followee.getId())) {
-            follower.getFollowing().remove(followee.getId());
-            followee.setFollowers(Math.max(0, followee.getFollowers() - 1));
-            
-            userRepository.save(follower);
-            userRepository.save(followee);
+    private int clampFollowPageSize(Integer size) {
+        return size == null ? DEFAULT_FOLLOW_PAGE_SIZE : Math.max(1, Math.min(size, MAX_FOLLOW_PAGE_SIZE));
+    }
+
+    // ids holds one row more than the page size so hasMore needs no count query
+    private Map<String, Object> toFollowPage(List<Long> ids, int pageSize) {
+        boolean hasMore = ids.size() > pageSize;
+        List<Long> pageIds = hasMore ? ids.subList(0, pageSize) : ids;
+
+        Map<Long, UserSummary> byId = new HashMap<>();
+        if (!pageIds.isEmpty()) {
+            userRepository.findSummariesByIdIn(pageIds).forEach(summary -> byId.put(summary.getId(), summary));
+        }
+        List<UserSummary> users = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            UserSummary summary = byId.get(id);
+            if (summary != null) {
+                users.add(summary);
+            }
         }
 
-        followee.setPassword(null);
-        return followee;
+        Map<String, Object> page = new HashMap<>();
+        page.put("users", users);
+        page.put("hasMore", hasMore);
+        page.put("nextCursor", hasMore ? pageIds.get(pageIds.size() - 1) : null);
+        return page;
+    }
+
+    // The signed-in user's own following list, served from the follow graph cache
+    public List<Long> getFollowingIds(Long userId) {
+        return Arrays.stream(followGraphService.getFollowingIds(userId)).boxed().collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
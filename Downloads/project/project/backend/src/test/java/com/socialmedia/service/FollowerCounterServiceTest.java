@@ -0,0 +1,195 @@
+package com.socialmedia.service;
+
+import com.socialmedia.model.User;
+import com.socialmedia.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Hammers the counter with committed follows/unfollows, flushes and reads from many threads
+// against a real database and checks the stored count against the number of committed deltas.
+class FollowerCounterServiceTest {
+
+    private static final long USER_ID = 1L;
+    private static final long FAN_ID = 2L;
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private TransactionTemplate transactionTemplate;
+    private UserRepository userRepository;
+    private UserCache userCache;
+    private FollowerCounterService counter;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:followers-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, email VARCHAR(100), followers INT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO users (id, email, followers) VALUES (?, 'popular@example.com', 0)", USER_ID);
+        jdbcTemplate.update("INSERT INTO users (id, email, followers) VALUES (?, 'fan@example.com', 0)", FAN_ID);
+
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findById(anyLong())).thenAnswer(invocation -> Optional.of(loadUser(invocation.getArgument(0))));
+        when(userRepository.findByEmail(anyString())).thenAnswer(invocation -> Optional.of(loadUser(
+                jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, (Object) invocation.getArgument(0)))));
+        userCache = new UserCache();
+        ReflectionTestUtils.setField(userCache, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userCache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(userCache, "maxEntries", 100);
+        ReflectionTestUtils.setField(userCache, "ttlSeconds", 60L);
+        userCache.init();
+
+        counter = new FollowerCounterService(transactionManager);
+        ReflectionTestUtils.setField(counter, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(counter, "userCache", userCache);
+    }
+
+    @Test
+    void concurrentFollowsFlushesAndReadsKeepTheCountExact() throws Exception {
+        int threads = 16;
+        int follows = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 4);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger committed = new AtomicInteger();
+        ConcurrentLinkedQueue<String> badReads = new ConcurrentLinkedQueue<>();
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> background = new ArrayList<>();
+
+        // Every writer follows the same account, with a rolled-back follow in between that must never count
+        for (int i = 0; i < threads; i++) {
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int round = 0; round < follows; round++) {
+                    commit(1);
+                    committed.incrementAndGet();
+                    rollBack(1);
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < 2; i++) {
+            background.add(pool.submit(() -> {
+                start.await();
+                while (running.get()) {
+                    counter.flush();
+                    Thread.sleep(ThreadLocalRandom.current().nextInt(2));
+                }
+                return null;
+            }));
+            // A delta counted both in the row and in pending shows up as more follows than were
+            // committed; one taken out of pending before the row has it shows up as fewer
+            background.add(pool.submit(() -> {
+                start.await();
+                while (running.get()) {
+                    int before = committed.get();
+                    int seen = counter.applyPending(loadUser(USER_ID)).getFollowers();
+                    int after = committed.get();
+                    if (seen < before || seen > after + threads) {
+                        badReads.add(seen + " not in [" + before + ", " + (after + threads) + "]");
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(60, TimeUnit.SECONDS);
+        }
+        running.set(false);
+        for (Future<?> task : background) {
+            task.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        counter.flush();
+
+        assertTrue(badReads.isEmpty(), "inconsistent reads: " + badReads);
+        assertEquals(0, counter.getPending(USER_ID));
+        assertEquals(threads * follows, storedFollowers());
+        assertEquals(threads * follows, counter.applyPending(loadUser(USER_ID)).getFollowers());
+    }
+
+    @Test
+    void failedFlushKeepsTheDeltaPending() {
+        commit(3);
+        jdbcTemplate.execute("ALTER TABLE users RENAME TO users_offline");
+        counter.flush();
+        assertEquals(3, counter.getPending(USER_ID));
+
+        jdbcTemplate.execute("ALTER TABLE users_offline RENAME TO users");
+        counter.flush();
+        assertEquals(0, counter.getPending(USER_ID));
+        assertEquals(3, storedFollowers());
+    }
+
+    // The response to a follow is what the client shows, so it has to count the follow it answers
+    @Test
+    void followResponseIncludesTheCallersOwnFollow() throws Exception {
+        FollowGraphService followGraphService = mock(FollowGraphService.class);
+        when(followGraphService.follow(FAN_ID, USER_ID)).thenReturn(true);
+        when(followGraphService.unfollow(FAN_ID, USER_ID)).thenReturn(true);
+        UserService userService = new UserService(transactionManager);
+        ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userService, "followGraphService", followGraphService);
+        ReflectionTestUtils.setField(userService, "followerCounterService", counter);
+        ReflectionTestUtils.setField(userService, "userCache", userCache);
+
+        assertEquals(1, userService.followUser("fan@example.com", "popular@example.com").getFollowers());
+        counter.flush();
+        assertEquals(0, userService.unfollowUser("fan@example.com", "popular@example.com").getFollowers());
+    }
+
+    private void commit(int delta) {
+        transactionTemplate.executeWithoutResult(status -> counter.recordAfterCommit(USER_ID, delta));
+    }
+
+    private void rollBack(int delta) {
+        transactionTemplate.executeWithoutResult(status -> {
+            counter.recordAfterCommit(USER_ID, delta);
+            status.setRollbackOnly();
+        });
+    }
+
+    private int storedFollowers() {
+        return jdbcTemplate.queryForObject("SELECT followers FROM users WHERE id = ?", Integer.class, USER_ID);
+    }
+
+    private User loadUser(long id) {
+        return jdbcTemplate.queryForObject("SELECT id, email, followers FROM users WHERE id = ?", (rs, row) -> {
+            User user = new User();
+            user.setId(rs.getLong("id"));
+            user.setEmail(rs.getString("email"));
+            user.setFollowers(rs.getInt("followers"));
+            return user;
+        }, id);
+    }
+}
@@ -0,0 +1,34 @@
+package com.socialmedia.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Upload metadata is echoed back to the recipient on download, so it is checked before it is stored
+class MediaUploadServiceTest {
+
+    @Test
+    void acceptsPassiveMediaTypesAndDropsParameters() throws Exception {
+        assertEquals("image/png", MediaUploadService.validateContentType("image/png"));
+        assertEquals("video/mp4", MediaUploadService.validateContentType("VIDEO/MP4; codecs=avc1"));
+        assertEquals("application/pdf", MediaUploadService.validateContentType("application/pdf"));
+        assertEquals("application/octet-stream", MediaUploadService.validateContentType(null));
+    }
+
+    @Test
+    void rejectsActiveAndMalformedTypes() {
+        assertThrows(Exception.class, () -> MediaUploadService.validateContentType("text/html"));
+        assertThrows(Exception.class, () -> MediaUploadService.validateContentType("image/svg+xml"));
+        assertThrows(Exception.class, () -> MediaUploadService.validateContentType("image/*"));
+        assertThrows(Exception.class, () -> MediaUploadService.validateContentType("not a type"));
+    }
+
+    @Test
+    void stripsPathsAndControlCharactersFromFilenames() {
+        assertEquals("photo.jpg", MediaUploadService.sanitizeFilename("C:\\Users\\me\\photo.jpg"));
+        assertEquals("a.png", MediaUploadService.sanitizeFilename("../../a\r\n.png"));
+        assertNull(MediaUploadService.sanitizeFilename("dir/"));
+    }
+}
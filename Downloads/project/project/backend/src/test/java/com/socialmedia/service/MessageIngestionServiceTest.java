@@ -0,0 +1,147 @@
+package com.socialmedia.service;
+
+import com.socialmedia.model.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+// Two write-behind instances share one database, as two app nodes would. A poller follows the table with
+// an "after" cursor the way conversation polling and stream resume do; it must never step over an id that
+// commits later. The same run checks that group commit actually batches: far fewer commits than messages.
+class MessageIngestionServiceTest {
+
+    private static final int INSTANCES = 2;
+    private static final int CLIENTS = 32;
+    private static final int MESSAGES_PER_CLIENT = 100;
+
+    private JdbcTemplate jdbcTemplate;
+    private final AtomicInteger commits = new AtomicInteger();
+    private final List<MessageIngestionService> instances = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:ingestion-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE messages (id BIGINT PRIMARY KEY, sender_email VARCHAR(100), recipient_email VARCHAR(100), "
+                + "sender_id BIGINT, recipient_id BIGINT, conversation_id BIGINT, content VARCHAR(1000), timestamp TIMESTAMP, "
+                + "is_read BOOLEAN, deleted BOOLEAN, media_id BIGINT, media_type VARCHAR(100), media_filename VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE id_allocations (name VARCHAR(64) PRIMARY KEY, next_value BIGINT NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE message_archive_blocks (id BIGINT PRIMARY KEY, last_message_id BIGINT)");
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource) {
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+                super.doCommit(status);
+                commits.incrementAndGet();
+            }
+        };
+        for (int i = 0; i < INSTANCES; i++) {
+            MessageIdAllocator allocator = new MessageIdAllocator();
+            ReflectionTestUtils.setField(allocator, "jdbcTemplate", jdbcTemplate);
+
+            MessageIngestionService ingestion = new MessageIngestionService(transactionManager);
+            ReflectionTestUtils.setField(ingestion, "jdbcTemplate", jdbcTemplate);
+            ReflectionTestUtils.setField(ingestion, "messageIdAllocator", allocator);
+            ReflectionTestUtils.setField(ingestion, "conversationSummaryService", mock(ConversationSummaryService.class));
+            ReflectionTestUtils.setField(ingestion, "eventPublisher", mock(ApplicationEventPublisher.class));
+            ReflectionTestUtils.setField(ingestion, "enabled", true);
+            ReflectionTestUtils.setField(ingestion, "queueCapacity", 10_000);
+            ReflectionTestUtils.setField(ingestion, "batchSize", 200);
+            ReflectionTestUtils.setField(ingestion, "lingerMs", 5L);
+            ReflectionTestUtils.setField(ingestion, "retryAfterSeconds", 1L);
+            ingestion.init();
+            instances.add(ingestion);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (MessageIngestionService ingestion : instances) {
+            ingestion.shutdown();
+        }
+    }
+
+    @Test
+    void batchesCommitInIdOrderAcrossInstances() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CLIENTS + 1);
+        AtomicBoolean sending = new AtomicBoolean(true);
+        Set<Long> acked = ConcurrentHashMap.newKeySet();
+        Set<Long> polled = new TreeSet<>();
+
+        Future<?> poller = pool.submit(() -> {
+            long cursor = 0;
+            boolean last = false;
+            while (!last) {
+                last = !sending.get();
+                List<Long> page = jdbcTemplate.queryForList("SELECT id FROM messages WHERE id > ? ORDER BY id", Long.class, cursor);
+                polled.addAll(page);
+                if (!page.isEmpty()) {
+                    cursor = page.get(page.size() - 1);
+                }
+            }
+            return null;
+        });
+
+        long started = System.nanoTime();
+        List<Future<?>> clients = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            MessageIngestionService ingestion = instances.get(c % INSTANCES);
+            long sender = c;
+            clients.add(pool.submit(() -> {
+                // Each client waits for its ack before sending again, like an HTTP caller
+                for (int i = 0; i < MESSAGES_PER_CLIENT; i++) {
+                    CompletableFuture<Message> ack = ingestion.submit(message(sender, "message " + i));
+                    acked.add(ack.get(30, TimeUnit.SECONDS).getId());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> client : clients) {
+            client.get(120, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        sending.set(false);
+        poller.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        int total = CLIENTS * MESSAGES_PER_CLIENT;
+        assertEquals(total, acked.size());
+        assertEquals(total, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM messages", Integer.class));
+        assertEquals(new TreeSet<>(acked), polled, "the after-cursor poller skipped ids that committed late");
+
+        double perCommit = (double) total / commits.get();
+        System.out.printf("write-behind: %d messages in %.2fs (%.0f msg/s), %d commits, %.1f messages per commit%n",
+                total, seconds, total / seconds, commits.get(), perCommit);
+        assertTrue(perCommit >= 4, "group commit should batch concurrent sends, got " + perCommit + " messages per commit");
+    }
+
+    private static Message message(long senderId, String content) {
+        Message message = new Message("user" + senderId + "@example.com", "user" + (senderId + 1) + "@example.com", content);
+        message.setParticipants(senderId, senderId + 1);
+        return message;
+    }
+}
@@ -0,0 +1,127 @@
+package com.socialmedia.service;
+
+import com.socialmedia.model.Message;
+import com.socialmedia.repository.MessageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Writes postings out as segments, loads them into a fresh index and checks every search answers the same.
+// The ids straddle varint byte boundaries and include a late, out-of-order insert.
+class MessageSearchIndexTest {
+
+    private static final long ALICE = 1L;
+    private static final long BOB = 2L;
+    private static final long CAROL = 3L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void segmentsRoundTripPostingsAndTombstones() throws IOException {
+        MessageSearchIndex original = newIndex(8);
+        List<Long> ids = new ArrayList<>();
+        long id = 0;
+        for (long gap : new long[]{1, 126, 127, 128, 16_383, 16_384, 1L << 21, 1L << 35, 1L << 56, 1, 1}) {
+            id += gap;
+            ids.add(id);
+            original.index(message(id, ALICE, BOB, "quarterly report draft " + (ids.size() % 2 == 0 ? "even" : "odd")));
+        }
+        long late = ids.get(3) + 1;
+        original.index(message(late, BOB, ALICE, "late report"));
+        original.index(message(ids.get(ids.size() - 1) + 1, ALICE, CAROL, "lunch"));
+        original.remove(ids.get(5));
+        original.flush();
+
+        MessageSearchIndex reloaded = newIndex(8);
+        reloaded.load();
+
+        for (String query : List.of("report", "quarterly draft", "even", "odd report", "late", "lunch", "missing")) {
+            for (long owner : new long[]{ALICE, BOB, CAROL}) {
+                assertEquals(original.search(owner, query, null, 100), reloaded.search(owner, query, null, 100),
+                        query + " for user " + owner);
+            }
+        }
+        List<Long> reports = reloaded.search(ALICE, "report", null, 100);
+        assertEquals(ids.size(), reports.size());
+        assertEquals(ids.get(ids.size() - 1), reports.get(0));
+        assertEquals(List.of(late, ids.get(3)), reloaded.search(BOB, "report", ids.get(4), 2));
+    }
+
+    @Test
+    void compactionDropsTombstonesAndKeepsTheRest() throws IOException {
+        MessageSearchIndex index = newIndex(1);
+        index.index(message(10, ALICE, BOB, "hello world"));
+        index.index(message(300, ALICE, BOB, "hello again"));
+        index.flush();
+        index.index(message(70_000, BOB, ALICE, "hello there"));
+        index.remove(300L);
+        index.flush();
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.filter(path -> path.getFileName().toString().endsWith(".idx")).count());
+        }
+        MessageSearchIndex reloaded = newIndex(1);
+        reloaded.load();
+        assertEquals(List.of(70_000L, 10L), reloaded.search(ALICE, "hello", null, 10));
+        assertEquals(List.of(70_000L, 10L), reloaded.search(BOB, "hello", null, 10));
+        assertEquals(List.of(), reloaded.search(ALICE, "again", null, 10));
+    }
+
+    @Test
+    void rebuildIndexesArchivedMessagesToo() throws IOException {
+        MessageSearchIndex index = newIndex(8);
+        MessageRepository messageRepository = mock(MessageRepository.class);
+        when(messageRepository.findIndexableAfter(anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(message(500, ALICE, BOB, "budget update")));
+        MessageArchiveService archive = mock(MessageArchiveService.class);
+        doAnswer(invocation -> {
+            Consumer<Message> consumer = invocation.getArgument(0);
+            consumer.accept(message(12, BOB, ALICE, "old budget"));
+            return null;
+        }).when(archive).forEachArchivedMessage(any());
+        ReflectionTestUtils.setField(index, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(index, "messageArchiveService", archive);
+
+        index.rebuild();
+
+        assertEquals(List.of(500L, 12L), index.search(ALICE, "budget", null, 10));
+    }
+
+    private MessageSearchIndex newIndex(int maxSegments) throws IOException {
+        MessageRepository messageRepository = mock(MessageRepository.class);
+        when(messageRepository.findIndexableAfter(anyLong(), any(Pageable.class))).thenReturn(List.of());
+        MessageSearchIndex index = new MessageSearchIndex();
+        ReflectionTestUtils.setField(index, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(index, "messageArchiveService", mock(MessageArchiveService.class));
+        ReflectionTestUtils.setField(index, "indexDir", dir.toString());
+        ReflectionTestUtils.setField(index, "maxSegments", maxSegments);
+        ReflectionTestUtils.setField(index, "catchUpBatchSize", 1000);
+        ReflectionTestUtils.setField(index, "catchUpOverlap", 1000L);
+        index.init();
+        return index;
+    }
+
+    private static Message message(long id, long senderId, long recipientId, String content) {
+        Message message = new Message("user" + senderId + "@example.com", "user" + recipientId + "@example.com", content);
+        message.setId(id);
+        message.setParticipants(senderId, recipientId);
+        return message;
+    }
+}
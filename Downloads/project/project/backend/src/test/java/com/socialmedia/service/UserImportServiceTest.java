@@ -0,0 +1,118 @@
+package com.socialmedia.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialmedia.repository.UserRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The duplicate pre-check is stubbed out to stand in for signups that land between the check and the
+// insert, which forces the row-by-row fallback. Each rejected row must say why it was rejected.
+class UserImportServiceTest {
+
+    @TempDir
+    Path spoolDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private UserImportService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:import-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(20) UNIQUE, "
+                + "display_name VARCHAR(30), email VARCHAR(255) UNIQUE, password VARCHAR(512), avatar VARCHAR(500), "
+                + "bio VARCHAR(500), followers INT, following_count INT, join_date TIMESTAMP, last_modified TIMESTAMP, active BOOLEAN)");
+        jdbcTemplate.update("INSERT INTO users (username, display_name, email, password, followers, following_count, active) "
+                + "VALUES ('taken', 'Taken', 'taken@example.com', 'x', 0, 0, true)");
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.existsByUsername("taken")).thenReturn(true);
+
+        service = new UserImportService(new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "namedParameterJdbcTemplate", mock(NamedParameterJdbcTemplate.class));
+        ReflectionTestUtils.setField(service, "passwordEncoder", new BCryptPasswordEncoder(4));
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "userSearchIndex", mock(UserSearchIndex.class));
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(service, "spoolDir", spoolDir.toString());
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        ReflectionTestUtils.setField(service, "hashThreads", 1);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void reportsTheActualReasonForEachRejectedRow() throws Exception {
+        String body = String.join("\n",
+                row("alice", "Alice", "alice@example.com"),
+                row("taken", "Someone", "new@example.com"),
+                row("newname", "Someone", "taken@example.com"),
+                row("longname", "A display name far too long for the column", "long@example.com"),
+                row("bob", "Bob", "bob@example..com"),
+                row("", "Nobody", "nobody@example.com"));
+
+        UserImportService.ImportJob job = service.startImport(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        Map<String, Object> result = awaitFinished(job);
+
+        assertEquals(UserImportService.ImportJob.STATUS_COMPLETE, result.get("status"));
+        assertEquals(1, result.get("imported"));
+        assertEquals(5, result.get("failed"));
+
+        @SuppressWarnings("unchecked")
+        Map<Integer, String> errors = ((List<Map<String, Object>>) result.get("errors")).stream()
+                .collect(Collectors.toMap(error -> (Integer) error.get("line"), error -> (String) error.get("error")));
+        assertEquals("Username is already taken", errors.get(2));
+        assertEquals("Email is already in use", errors.get(3));
+        assertTrue(errors.get(4).startsWith("Rejected by the database"), errors.get(4));
+        // Accepted by a bare "x@y" pattern but not by the @Email rule a signup is held to
+        assertEquals("Email should be valid", errors.get(5));
+        assertEquals("Username is required", errors.get(6));
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE username = 'alice'", Integer.class));
+    }
+
+    private Map<String, Object> awaitFinished(UserImportService.ImportJob job) throws Exception {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            Map<String, Object> state = job.toMap();
+            if (state.get("finishedAt") != null) {
+                return state;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Import did not finish");
+    }
+
+    private static String row(String username, String displayName, String email) {
+        return String.format("{\"username\":\"%s\",\"displayName\":\"%s\",\"email\":\"%s\",\"password\":\"secret123\"}",
+                username, displayName, email);
+    }
+}
@@ -0,0 +1,75 @@
+package com.socialmedia.service;
+
+import com.socialmedia.dto.UserSummary;
+import com.socialmedia.model.User;
+import com.socialmedia.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// A bulk rebuild followed by out-of-order upserts and removals must answer like an index built one user at a time
+class UserSearchIndexTest {
+
+    @Test
+    void rebuildAndIncrementalUpdatesAgree() {
+        List<UserSummary> users = new ArrayList<>();
+        for (long id : new long[]{40, 3, 17, 1, 250, 99, 8}) {
+            users.add(new UserSummary(id, "user" + id, "Sam Person " + id, "user" + id + "@example.com", null));
+        }
+        UserSearchIndex bulk = newIndex(users);
+        bulk.rebuild();
+
+        UserSearchIndex incremental = newIndex(List.of());
+        incremental.rebuild();
+        users.forEach(summary -> incremental.upsert(user(summary.getId(), summary.getUsername(), summary.getDisplayName())));
+
+        for (UserSearchIndex index : List.of(bulk, incremental)) {
+            index.upsert(user(5L, "samantha", "Samantha Late"));
+            index.upsert(user(99L, "renamed", "Someone Else"));
+            index.remove(17L);
+        }
+
+        for (String query : List.of("s", "sa", "sam", "user", "person 2", "renamed", "user17", "missing")) {
+            assertEquals(ids(incremental.search(query, 100)), ids(bulk.search(query, 100)), query);
+        }
+        assertEquals(List.of(5L), ids(bulk.search("samantha", 100)));
+        assertEquals(List.of(1L, 3L, 8L, 40L, 250L), sorted(ids(bulk.search("person", 100))));
+        assertEquals(7, bulk.size());
+    }
+
+    private static UserSearchIndex newIndex(List<UserSummary> users) {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findActiveUserSummaries()).thenReturn(users);
+        UserSearchIndex index = new UserSearchIndex();
+        ReflectionTestUtils.setField(index, "userRepository", userRepository);
+        return index;
+    }
+
+    private static User user(Long id, String username, String displayName) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setDisplayName(displayName);
+        user.setEmail(username + "@example.com");
+        user.setActive(true);
+        return user;
+    }
+
+    private static List<Long> ids(List<UserSummary> results) {
+        List<Long> ids = new ArrayList<>();
+        results.forEach(summary -> ids.add(summary.getId()));
+        return ids;
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        List<Long> copy = new ArrayList<>(ids);
+        copy.sort(null);
+        return copy;
+    }
+}
@@ -302,23 +302,20 @@ function App() {
 
   const handleFollowUser = async (userEmail) => {
     try {
-      await usersAPI.followUser(userEmail);
-      
-      // Find user by email
-      const user = users.find(u => u.email === userEmail);
-      if (!user) return;
+      // The response is the followed user with its current follower count
+      const user = await usersAPI.followUser(userEmail);
       
       // Update users list
-      setUsers(prev => prev.map(user => 
-        user.email === userEmail 
-          ? { ...user, followers: user.followers + 1 }
-          : user
+      setUsers(prev => prev.map(existing => 
+        existing.email === userEmail 
+          ? { ...existing, followers: user.followers }
+          : existing
       ));
       
       // Update current user's following list
       setCurrentUser(prev => ({
         ...prev,
-        following: [...(prev.following || []), user.id]
+        following: [...(prev.following || []).filter(id => id !== user.id), user.id]
       }));
       
       // Add notification
@@ -338,17 +335,14 @@ function App() {
 
   const handleUnfollowUser = async (userEmail) => {
     try {
-      await usersAPI.unfollowUser(userEmail);
-      
-      // Find user by email
-      const user = users.find(u => u.email === userEmail);
-      if (!user) return;
+      // The response is the unfollowed user with its current follower count
+      const user = await usersAPI.unfollowUser(userEmail);
       
       // Update users list
-      setUsers(prev => prev.map(user => 
-        user.email === userEmail 
-          ? { ...user, followers: Math.max(0, user.followers - 1) }
-          : user
+      setUsers(prev => prev.map(existing => 
+        existing.email === userEmail 
+          ? { ...existing, followers: user.followers }
+          : existing
       ));
       
       // Update current user's following list
@@ -0,0 +1,47 @@
+import React, { useState, useEffect } from 'react';
+import { messagesAPI } from '../../services/api';
+
+// Loads a message attachment with the auth header and shows it through an object URL
+const MessageMedia = ({ messageId, mediaType }) => {
+  const [objectUrl, setObjectUrl] = useState(null);
+
+  useEffect(() => {
+    let cancelled = false;
+    let url = null;
+
+    messagesAPI.getMedia(messageId)
+      .then(blob => {
+        if (cancelled) return;
+        url = URL.createObjectURL(blob);
+        setObjectUrl(url);
+      })
+      .catch(error => console.error('Failed to load attachment:', error));
+
+    return () => {
+      cancelled = true;
+      if (url) URL.revokeObjectURL(url);
+    };
+  }, [messageId]);
+
+  if (!objectUrl) return null;
+
+  return (
+    <div className="mt-2">
+      {mediaType && mediaType.startsWith('image') ? (
+        <img
+          src={objectUrl}
+          alt="Message attachment"
+          className="max-w-xs rounded"
+        />
+      ) : mediaType && mediaType.startsWith('video') ? (
+        <video
+          src={objectUrl}
+          className="max-w-xs rounded"
+          controls
+        />
+      ) : null}
+    </div>
+  );
+};
+
+export default MessageMedia;
@@ -1,6 +1,7 @@
 import React, { useState } from 'react';
 import { Search, Send, Phone, Video, MoreHorizontal, Smile } from 'lucide-react';
 import { messagesAPI } from '../../services/api';
+import MessageMedia from './MessageMedia';
 
 const MessagesPage = ({ currentUser, users, messages, onSendMessage, conversations }) => {
   const [selectedUser, setSelectedUser] = useState(null);
@@ -219,22 +220,8 @@ const MessagesPage = ({ currentUser, users, messages, onSendMessage, conversatio
                           <p>{msg.content}</p>
                           
                           {/* Message Media */}
-                          {msg.mediaData && (
-                            <div className="mt-2">
-                              {msg.mediaType && msg.mediaType.startsWith('image') ? (
-                                <img
-                                  src={msg.mediaData.startsWith('data:') ? msg.mediaData : `data:${msg.mediaType};base64,${msg.mediaData}`}
-                                  alt="Message attachment"
-                                  className="max-w-xs rounded"
-                                />
-                              ) : msg.mediaType && msg.mediaType.startsWith('video') ? (
-                                <video
-                                  src={msg.mediaData.startsWith('data:') ? msg.mediaData : `data:${msg.mediaType};base64,${msg.mediaData}`}
-                                  className="max-w-xs rounded"
-                                  controls
-                                />
-                              ) : null}
-                            </div>
+                          {msg.mediaUrl && (
+                            <MessageMedia messageId={msg.id} mediaType={msg.mediaType} />
                           )}
                           
                           <span className={`text-xs ${
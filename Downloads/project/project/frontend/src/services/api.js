@@ -164,8 +164,14 @@ export const messagesAPI = {
     });
   },
 
-  getConversation: async (userEmail) => {
-    return await apiRequest(`/messages/conversation/${encodeURIComponent(userEmail)}`);
+  getConversation: async (userEmail, { before, after, size } = {}) => {
+    const params = new URLSearchParams();
+    if (before) params.append('before', before);
+    if (after) params.append('after', after);
+    if (size) params.append('size', size);
+    const query = params.toString() ? `?${params.toString()}` : '';
+    const page = await apiRequest(`/messages/conversation/${encodeURIComponent(userEmail)}${query}`);
+    return page.messages || [];
   },
 
   getAllConversations: async () => {
@@ -181,12 +187,70 @@ export const messagesAPI = {
   getUnreadMessages: async () => {
     return await apiRequest('/messages/unread');
   },
+
+  deleteMessage: async (messageId) => {
+    return await apiRequest(`/messages/${messageId}`, {
+      method: 'DELETE',
+    });
+  },
+
+  searchMessages: async (q, { before, size } = {}) => {
+    const params = new URLSearchParams({ q });
+    if (before) params.append('before', before);
+    if (size) params.append('size', size);
+    return await apiRequest(`/messages/search?${params.toString()}`);
+  },
+
+  // Attachments need the bearer token, so they are fetched as blobs rather than linked directly
+  getMedia: async (messageId) => {
+    const token = getAuthToken();
+    const response = await fetch(`${API_BASE_URL}/messages/${messageId}/media`, {
+      headers: token ? { 'Authorization': `Bearer ${token}` } : {},
+    });
+    if (!response.ok) {
+      throw new Error(`HTTP error! status: ${response.status}`);
+    }
+    return await response.blob();
+  },
+};
+
+// Presence API
+export const presenceAPI = {
+  heartbeat: async ({ state, typingTo } = {}) => {
+    return await apiRequest('/presence/heartbeat', {
+      method: 'POST',
+      body: { state, typingTo },
+    });
+  },
+
+  getPresence: async (userIds) => {
+    return await apiRequest('/presence', {
+      method: 'POST',
+      body: userIds,
+    });
+  },
 };
 
 // Users API
 export const usersAPI = {
-  getAllUsers: async () => {
-    return await apiRequest('/users');
+  getUsersPage: async ({ after, size } = {}) => {
+    const params = new URLSearchParams();
+    if (after) params.append('after', after);
+    if (size) params.append('size', size);
+    const query = params.toString() ? `?${params.toString()}` : '';
+    return await apiRequest(`/users${query}`);
+  },
+
+  // Follows nextCursor until the directory is exhausted
+  getAllUsers: async ({ size = 200 } = {}) => {
+    const users = [];
+    let after;
+    do {
+      const page = await usersAPI.getUsersPage({ after, size });
+      users.push(...(page.users || []));
+      after = page.hasMore ? page.nextCursor : undefined;
+    } while (after);
+    return users;
   },
 
   getUserById: async (userId) => {